@@ -0,0 +1,64 @@
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Predictor state built from SyntheticReports, the generator behind the demo
+ * stream and the load generator, so benchmarks see the same data as a live
+ * run. Seeded, so every run measures the same inputs.
+ */
+final class BenchmarkData {
+    static final long START_TIME = 1_700_000_000_000L;
+    static final long WINDOW_MS = 60000;
+
+    private BenchmarkData() {
+    }
+
+    static PatientReport[] reports(int count, int hospitals, long seed) {
+        SyntheticReports generator = new SyntheticReports(hospitals, new Random(seed));
+        PatientReport[] reports = new PatientReport[count];
+        for (int i = 0; i < count; i++) {
+            reports[i] = new PatientReport();
+            reports[i].setPatientId("PATIENT_" + (1000 + i));
+            // Every 50 records a cluster of 5, as in the demo stream
+            if (i % 50 == 0) {
+                generator.startCluster();
+            }
+            if (i % 50 < 5 && i >= 50) {
+                generator.nextClusterReport(reports[i], START_TIME + i);
+            } else {
+                generator.nextReport(reports[i], START_TIME + i);
+            }
+        }
+        return reports;
+    }
+
+    /**
+     * Metrics for {@code hospitals} hospitals, each having seen between 1 and
+     * 8 reports in the last minute and some an outbreak cluster, so all three
+     * risk labels occur.
+     */
+    static Map<String, MLOutbreakPredictor.HospitalMetrics> hospitalMetrics(int hospitals, long seed) {
+        Random random = new Random(seed);
+        SyntheticReports generator = new SyntheticReports(hospitals, random);
+        Map<String, MLOutbreakPredictor.HospitalMetrics> registry = new ConcurrentHashMap<>();
+        HospitalShard shard = new HospitalShard(0, registry);
+        PatientReport report = new PatientReport();
+
+        for (int h = 0; h < hospitals; h++) {
+            int cases = 1 + random.nextInt(8);
+            for (int c = 0; c < cases; c++) {
+                long timestamp = START_TIME + c * (WINDOW_MS / 10);
+                generator.nextReport(report, timestamp);
+                // Pin the hospital; the generator picks one at random
+                report.hospital = CategoryDictionary.HOSPITALS.intern(generator.getHospitalName(h));
+                MLOutbreakPredictor.HospitalMetrics metrics =
+                    MLOutbreakPredictor.updateHospitalMetrics(shard, report, timestamp);
+                if (random.nextInt(20) == 0) {
+                    metrics.hadRecentOutbreak = true;
+                }
+            }
+        }
+        return registry;
+    }
+}
@@ -0,0 +1,89 @@
+import java.nio.charset.StandardCharsets;
+
+/** Unnamed-package side of benchmarks.ParsingBenchmark. */
+public class ParsingWorkload implements benchmarks.ParsingBenchmark.Workload {
+    private byte[][] json;
+    private byte[][] binary;
+    private int next = 0;
+
+    private final PatientReportParser parser = new PatientReportParser();
+    private final BinaryReportCodec codec = new BinaryReportCodec();
+    private final PatientReport report = new PatientReport();
+
+    @Override
+    public void setUp(int records, int hospitals) {
+        PatientReport[] reports = BenchmarkData.reports(records, hospitals, 42);
+        PatientReportSerializer jsonSerializer = new PatientReportSerializer(ReportFormat.JSON);
+        PatientReportSerializer binarySerializer = new PatientReportSerializer(ReportFormat.BINARY);
+        json = new byte[records][];
+        binary = new byte[records][];
+        for (int i = 0; i < records; i++) {
+            json[i] = jsonSerializer.serialize("patient-reports", reports[i]);
+            binary[i] = binarySerializer.serialize("patient-reports", reports[i]);
+        }
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = index + 1 == json.length ? 0 : index + 1;
+        return index;
+    }
+
+    // How MLOutbreakPredictor parsed each record before PatientReportParser:
+    // decode to a String, then search it once per field
+    @Override
+    public double legacyExtractValue() {
+        String reportJson = new String(json[nextIndex()], StandardCharsets.UTF_8);
+        String patientId = extractValue(reportJson, "patientId");
+        String hospital = extractValue(reportJson, "hospital");
+        String symptoms = extractValue(reportJson, "symptoms");
+        String severity = extractValue(reportJson, "severity");
+        double temperature = Double.parseDouble(extractValue(reportJson, "temperature"));
+        long timestamp = Long.parseLong(extractValue(reportJson, "timestamp"));
+        boolean isCluster = reportJson.contains("\"cluster\":true");
+        return temperature + timestamp + patientId.length() + hospital.length() +
+               symptoms.length() + severity.length() + (isCluster ? 1 : 0);
+    }
+
+    @Override
+    public double parseJson() {
+        parser.parse(json[nextIndex()], report);
+        return report.temperature + report.timestamp + report.hospital;
+    }
+
+    @Override
+    public double decodeBinary() {
+        byte[] data = binary[nextIndex()];
+        codec.decode(data, 0, data.length, report);
+        return report.temperature + report.timestamp + report.hospital;
+    }
+
+    private static String extractValue(String json, String key) {
+        try {
+            String pattern = "\"" + key + "\":\"";
+            int start = json.indexOf(pattern);
+            if (start != -1) {
+                start += pattern.length();
+                int end = json.indexOf("\"", start);
+                if (end > start) {
+                    return json.substring(start, end);
+                }
+            }
+
+            // For numeric values without quotes
+            pattern = "\"" + key + "\":";
+            start = json.indexOf(pattern);
+            if (start != -1) {
+                start += pattern.length();
+                int end = json.indexOf(",", start);
+                if (end == -1) end = json.indexOf("}", start);
+                if (end > start) {
+                    return json.substring(start, end);
+                }
+            }
+        } catch (Exception e) {
+            // Return default
+        }
+        return "0";
+    }
+}
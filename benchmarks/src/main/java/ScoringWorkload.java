@@ -0,0 +1,36 @@
+import weka.classifiers.functions.Logistic;
+import weka.core.Instances;
+import java.util.Map;
+
+/** Unnamed-package side of benchmarks.ScoringBenchmark. */
+public class ScoringWorkload implements benchmarks.ScoringBenchmark.Workload {
+    private Map<String, MLOutbreakPredictor.HospitalMetrics> metrics;
+    private TrainedModel compiled;
+    private TrainedModel wekaOnly;
+
+    @Override
+    public void setUp(int hospitals) throws Exception {
+        Instances training = MLOutbreakPredictor.createDatasetHeader();
+        for (MLOutbreakPredictor.HospitalMetrics example : BenchmarkData.hospitalMetrics(1000, 7).values()) {
+            training.add(MLOutbreakPredictor.toTrainingExample(example, training));
+        }
+        Logistic logistic = new Logistic();
+        logistic.buildClassifier(training);
+
+        Instances header = new Instances(training, 0);
+        compiled = new TrainedModel(logistic, CompiledModel.compile(logistic, training), header,
+                                    1, training.numInstances(), 0, 0.0, 0);
+        wekaOnly = new TrainedModel(logistic, null, header, 1, training.numInstances(), 0, 0.0, 0);
+        metrics = BenchmarkData.hospitalMetrics(hospitals, 42);
+    }
+
+    @Override
+    public int scoreCompiled() throws Exception {
+        return MLOutbreakPredictor.scoreHospitals(compiled, metrics);
+    }
+
+    @Override
+    public int scoreWeka() throws Exception {
+        return MLOutbreakPredictor.scoreHospitals(wekaOnly, metrics);
+    }
+}
@@ -0,0 +1,45 @@
+import weka.classifiers.Classifier;
+import weka.classifiers.Evaluation;
+import weka.classifiers.functions.Logistic;
+import weka.core.Instances;
+
+/** Unnamed-package side of benchmarks.TrainingBenchmark. */
+public class TrainingWorkload implements benchmarks.TrainingBenchmark.Workload {
+    private Instances dataset;
+    private Classifier trained;
+
+    @Override
+    public void setUp(int datasetSize) {
+        dataset = MLOutbreakPredictor.createDatasetHeader();
+        for (MLOutbreakPredictor.HospitalMetrics metrics : BenchmarkData.hospitalMetrics(datasetSize, 42).values()) {
+            dataset.add(MLOutbreakPredictor.toTrainingExample(metrics, dataset));
+        }
+        try {
+            trained = new Logistic();
+            trained.buildClassifier(dataset);
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot train benchmark model: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Object trainLogistic() throws Exception {
+        Logistic logistic = new Logistic();
+        logistic.buildClassifier(dataset);
+        return logistic;
+    }
+
+    @Override
+    public Object trainOnlineLogistic() throws Exception {
+        OnlineLogistic online = new OnlineLogistic();
+        online.buildClassifier(dataset);
+        return online;
+    }
+
+    @Override
+    public Object evaluateAndCompile() throws Exception {
+        Evaluation eval = new Evaluation(dataset);
+        eval.evaluateModel(trained, dataset);
+        return CompiledModel.compile(trained, dataset);
+    }
+}
@@ -0,0 +1,46 @@
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Unnamed-package side of benchmarks.WindowBenchmark. */
+public class WindowWorkload implements benchmarks.WindowBenchmark.Workload {
+    private HospitalShard shard;
+    private PatientReport[] reports;
+    private int next = 0;
+    private long spacing;
+    private long time;
+
+    @Override
+    public void setUp(int historySize) {
+        // Records for a single hospital, spaced so the window holds historySize of them
+        shard = new HospitalShard(0, new ConcurrentHashMap<>());
+        reports = BenchmarkData.reports(1024, 1, 42);
+        spacing = Math.max(1, BenchmarkData.WINDOW_MS / historySize);
+        time = BenchmarkData.START_TIME;
+        for (int i = 0; i < historySize; i++) {
+            ingest();
+        }
+    }
+
+    private PatientReport nextReport() {
+        PatientReport report = reports[next];
+        next = next + 1 == reports.length ? 0 : next + 1;
+        time += spacing;
+        report.timestamp = time;
+        return report;
+    }
+
+    @Override
+    public double updateHospitalMetrics() {
+        PatientReport report = nextReport();
+        return MLOutbreakPredictor.updateHospitalMetrics(shard, report, time).caseVelocity;
+    }
+
+    @Override
+    public double ingest() {
+        PatientReport report = nextReport();
+        CaseStore caseStore = shard.getCaseStore();
+        caseStore.add(report.getTimestamp(), report.getHospitalCode(), report.getSymptomsCode(),
+                      report.getSeverityCode(), report.getTemperature());
+        caseStore.evict(time);
+        return MLOutbreakPredictor.updateHospitalMetrics(shard, report, time).caseVelocity;
+    }
+}
@@ -0,0 +1,65 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding one patient report: the original String/extractValue parsing as a
+ * baseline, the byte-level JSON parser, and the binary codec.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParsingBenchmark {
+
+    /** Implemented by ParsingWorkload; each call decodes the next pre-encoded record. */
+    public interface Workload {
+        void setUp(int records, int hospitals);
+
+        double legacyExtractValue();
+
+        double parseJson();
+
+        double decodeBinary();
+    }
+
+    // Beyond the 5 catalog hospitals, binary records carry the name inline
+    @Param({"5", "1000"})
+    public int hospitals;
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workloads.create("ParsingWorkload", Workload.class);
+        workload.setUp(1024, hospitals);
+    }
+
+    @Benchmark
+    public double legacyExtractValue() {
+        return workload.legacyExtractValue();
+    }
+
+    @Benchmark
+    public double parseJson() {
+        return workload.parseJson();
+    }
+
+    @Benchmark
+    public double decodeBinary() {
+        return workload.decodeBinary();
+    }
+}
@@ -0,0 +1,57 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The scoring pass of generateRiskPredictions over {@code hospitals}
+ * hospitals, on the compiled coefficients and on the Weka fallback.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ScoringBenchmark {
+
+    /** Implemented by ScoringWorkload; each call returns the number of hospitals scored. */
+    public interface Workload {
+        void setUp(int hospitals) throws Exception;
+
+        int scoreCompiled() throws Exception;
+
+        int scoreWeka() throws Exception;
+    }
+
+    @Param({"10", "1000", "10000"})
+    public int hospitals;
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() throws Exception {
+        workload = Workloads.create("ScoringWorkload", Workload.class);
+        workload.setUp(hospitals);
+    }
+
+    @Benchmark
+    public int scoreCompiled() throws Exception {
+        return workload.scoreCompiled();
+    }
+
+    @Benchmark
+    public int scoreWeka() throws Exception {
+        return workload.scoreWeka();
+    }
+}
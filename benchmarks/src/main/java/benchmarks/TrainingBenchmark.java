@@ -0,0 +1,67 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One training run of the ModelTrainer over {@code datasetSize} labelled
+ * examples, as built by updateMLModel. 5000 is the default reservoir size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TrainingBenchmark {
+
+    /** Implemented by TrainingWorkload. */
+    public interface Workload {
+        void setUp(int datasetSize);
+
+        /** Weka Logistic, the batch mode model. */
+        Object trainLogistic() throws Exception;
+
+        /** OnlineLogistic rebuilt from the examples, the online mode model. */
+        Object trainOnlineLogistic() throws Exception;
+
+        /** The evaluation and compilation done before a new model is swapped in. */
+        Object evaluateAndCompile() throws Exception;
+    }
+
+    @Param({"100", "1000", "5000"})
+    public int datasetSize;
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workloads.create("TrainingWorkload", Workload.class);
+        workload.setUp(datasetSize);
+    }
+
+    @Benchmark
+    public Object trainLogistic() throws Exception {
+        return workload.trainLogistic();
+    }
+
+    @Benchmark
+    public Object trainOnlineLogistic() throws Exception {
+        return workload.trainOnlineLogistic();
+    }
+
+    @Benchmark
+    public Object evaluateAndCompile() throws Exception {
+        return workload.evaluateAndCompile();
+    }
+}
@@ -0,0 +1,60 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-record state updates for one hospital whose 60 s window holds a steady
+ * {@code historySize} cases: each operation adds a case and expires the
+ * oldest.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WindowBenchmark {
+
+    /** Implemented by WindowWorkload. */
+    public interface Workload {
+        void setUp(int historySize);
+
+        /** MLOutbreakPredictor.updateHospitalMetrics for the next record. */
+        double updateHospitalMetrics();
+
+        /** Everything a worker does per record apart from printing: case store add and evict, then the metrics. */
+        double ingest();
+    }
+
+    @Param({"10", "100", "1000", "10000"})
+    public int historySize;
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workloads.create("WindowWorkload", Workload.class);
+        workload.setUp(historySize);
+    }
+
+    @Benchmark
+    public double updateHospitalMetrics() {
+        return workload.updateHospitalMetrics();
+    }
+
+    @Benchmark
+    public double ingest() {
+        return workload.ingest();
+    }
+}
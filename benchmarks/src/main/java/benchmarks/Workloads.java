@@ -0,0 +1,22 @@
+package benchmarks;
+
+/**
+ * The predictor's classes live in the unnamed package, which JMH benchmarks
+ * (like any class in a named package) cannot refer to. Each benchmark
+ * therefore drives a small workload class compiled into the unnamed package
+ * next to the predictor, through an interface declared by the benchmark.
+ * The workload is loaded once per trial, and the single implementation
+ * keeps every call site monomorphic, so the indirection inlines away.
+ */
+final class Workloads {
+    private Workloads() {
+    }
+
+    static <T> T create(String className, Class<T> type) {
+        try {
+            return type.cast(Class.forName(className).getDeclaredConstructor().newInstance());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot load benchmark workload " + className, e);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+#!/bin/bash
+
+echo "⏱️ Running JMH Benchmarks..."
+echo "============================"
+
+# Extra arguments go to JMH, e.g. a benchmark regex: bash run-benchmarks.sh Parsing
+# or shorter runs: bash run-benchmarks.sh -wi 1 -i 3
+echo "🔨 Building benchmarks..."
+mvn -B -q package -DskipTests || exit 1
+
+mkdir -p benchmarks/results
+RESULTS="benchmarks/results/jmh-$(date +%Y%m%d-%H%M%S).json"
+
+# The gc profiler adds allocation rate (gc.alloc.rate.norm = bytes per operation) to every result
+java $JAVA_OPTS -jar benchmarks/target/benchmarks.jar -prof gc -rf json -rff "$RESULTS" "$@"
+
+echo ""
+echo "📊 Results saved to $RESULTS"
@@ -76,8 +76,7 @@ cp ../../src/*.java .
 
 # Compile Java files
 echo "🔨 Compiling Java applications..."
-javac -cp "kafka-clients-3.5.0.jar:slf4j-simple-1.7.36.jar:slf4j-api-1.7.36.jar:weka.jar:." HealthcareProducer.java
-javac -cp "kafka-clients-3.5.0.jar:slf4j-simple-1.7.36.jar:slf4j-api-1.7.36.jar:weka.jar:." MLOutbreakPredictor.java
+javac -cp "kafka-clients-3.5.0.jar:slf4j-simple-1.7.36.jar:slf4j-api-1.7.36.jar:weka.jar:." *.java
 
 cd ../../
 
@@ -0,0 +1,150 @@
+import java.util.Arrays;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Bounded, columnar store of recent patient cases.
+ *
+ * Cases are grouped into fixed-length time segments. Each segment holds its
+ * cases as primitive columns (timestamp, temperature and dictionary codes for
+ * hospital, symptoms and severity), so a case costs a few dozen bytes instead
+ * of an object graph of Strings. Segments older than the retention horizon
+ * are dropped whole, which keeps heap use flat however long the predictor runs.
+ *
+ * Not thread-safe: a store is owned by the thread that ingests its cases.
+ */
+public class CaseStore {
+    public static final long DEFAULT_RETENTION_MS = Long.getLong("outbreak.retention.ms", 3600000L); // 1 hour
+    public static final long DEFAULT_SEGMENT_MS = 10000;
+
+    private static final int INITIAL_SEGMENT_CAPACITY = 64;
+    // Bytes per stored case across all columns
+    private static final int BYTES_PER_CASE = Long.BYTES + Double.BYTES + 3 * Integer.BYTES;
+
+    /** Receives the columns of each case matched by a range query. */
+    public interface CaseVisitor {
+        void visit(long timestamp, int hospital, int symptoms, int severity, double temperature);
+    }
+
+    private final long retentionMillis;
+    private final long segmentMillis;
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private int size = 0;
+
+    public CaseStore() {
+        this(DEFAULT_RETENTION_MS, DEFAULT_SEGMENT_MS);
+    }
+
+    public CaseStore(long retentionMillis, long segmentMillis) {
+        if (retentionMillis <= 0 || segmentMillis <= 0) {
+            throw new IllegalArgumentException("Retention and segment length must be positive");
+        }
+        this.retentionMillis = retentionMillis;
+        this.segmentMillis = segmentMillis;
+    }
+
+    public void add(long timestamp, int hospital, int symptoms, int severity, double temperature) {
+        long segmentStart = Math.floorDiv(timestamp, segmentMillis) * segmentMillis;
+        Segment segment = segments.get(segmentStart);
+        if (segment == null) {
+            segment = new Segment();
+            segments.put(segmentStart, segment);
+        }
+        segment.add(timestamp, hospital, symptoms, severity, temperature);
+        size++;
+    }
+
+    /** Drops every segment that lies entirely outside the retention horizon. */
+    public void evict(long currentTime) {
+        // A segment starting at or before this key ends before the horizon
+        long lastExpiredStart = currentTime - retentionMillis - segmentMillis;
+        if (segments.isEmpty() || segments.firstKey() > lastExpiredStart) {
+            return;
+        }
+        NavigableMap<Long, Segment> expired = segments.headMap(lastExpiredStart, true);
+        for (Segment segment : expired.values()) {
+            size -= segment.size;
+        }
+        expired.clear();
+    }
+
+    /** Visits every case with {@code from <= timestamp <= to}; returns the number visited. */
+    public int scan(long from, long to, CaseVisitor visitor) {
+        return scan(-1, from, to, visitor);
+    }
+
+    /**
+     * Visits every case of {@code hospital} with {@code from <= timestamp <= to};
+     * a negative hospital code matches all hospitals. Returns the number visited.
+     */
+    public int scan(int hospital, long from, long to, CaseVisitor visitor) {
+        if (from > to) {
+            return 0;
+        }
+        int visited = 0;
+        long firstSegment = Math.floorDiv(from, segmentMillis) * segmentMillis;
+        for (Segment segment : segments.subMap(firstSegment, true, to, true).values()) {
+            for (int i = 0; i < segment.size; i++) {
+                long timestamp = segment.timestamps[i];
+                if (timestamp < from || timestamp > to) continue;
+                if (hospital >= 0 && segment.hospitals[i] != hospital) continue;
+                visitor.visit(timestamp, segment.hospitals[i], segment.symptoms[i],
+                              segment.severities[i], segment.temperatures[i]);
+                visited++;
+            }
+        }
+        return visited;
+    }
+
+    /** Counts the cases of {@code hospital} (or all hospitals if negative) in {@code [from, to]}. */
+    public int count(int hospital, long from, long to) {
+        return scan(hospital, from, to, (timestamp, h, symptoms, severity, temperature) -> { });
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    public long getRetentionMillis() {
+        return retentionMillis;
+    }
+
+    /** Approximate heap held by the column arrays, including unused capacity. */
+    public long estimatedBytes() {
+        long bytes = 0;
+        for (Segment segment : segments.values()) {
+            bytes += (long) segment.timestamps.length * BYTES_PER_CASE;
+        }
+        return bytes;
+    }
+
+    private static class Segment {
+        long[] timestamps = new long[INITIAL_SEGMENT_CAPACITY];
+        double[] temperatures = new double[INITIAL_SEGMENT_CAPACITY];
+        int[] hospitals = new int[INITIAL_SEGMENT_CAPACITY];
+        int[] symptoms = new int[INITIAL_SEGMENT_CAPACITY];
+        int[] severities = new int[INITIAL_SEGMENT_CAPACITY];
+        int size = 0;
+
+        void add(long timestamp, int hospital, int symptom, int severity, double temperature) {
+            if (size == timestamps.length) {
+                int capacity = size * 2;
+                timestamps = Arrays.copyOf(timestamps, capacity);
+                temperatures = Arrays.copyOf(temperatures, capacity);
+                hospitals = Arrays.copyOf(hospitals, capacity);
+                symptoms = Arrays.copyOf(symptoms, capacity);
+                severities = Arrays.copyOf(severities, capacity);
+            }
+            timestamps[size] = timestamp;
+            temperatures[size] = temperature;
+            hospitals[size] = hospital;
+            symptoms[size] = symptom;
+            severities[size] = severity;
+            size++;
+        }
+    }
+}
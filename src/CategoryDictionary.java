@@ -0,0 +1,159 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns categorical report values (hospital names, symptom patterns,
+ * severity levels) to dense int codes so they can be stored in primitive
+ * columns and compared without string hashing.
+ *
+ * Lookups of known values are lock-free; adding a new value takes a short
+ * lock. Codes are assigned in insertion order starting at 0 and never change.
+ */
+public class CategoryDictionary {
+    // Seeded from the catalog so a catalog value's code is also its wire code
+    public static final CategoryDictionary HOSPITALS = new CategoryDictionary("hospital", ReportCatalog.HOSPITALS);
+    public static final CategoryDictionary SYMPTOMS = new CategoryDictionary("symptoms", ReportCatalog.SYMPTOMS);
+    public static final CategoryDictionary SEVERITIES = new CategoryDictionary("severity", ReportCatalog.SEVERITY_LEVELS);
+
+    private final String name;
+    private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+    private volatile String[] values = new String[16];
+    private volatile int size = 0;
+
+    // Open-addressing index from UTF-8 bytes to code, so the report parser can
+    // intern values straight out of a message buffer without building Strings.
+    // Replaced wholesale on insert, so readers never see a half-filled table.
+    private volatile ByteEntry[] byteIndex = new ByteEntry[32];
+    private int byteIndexSize = 0;
+
+    private static final class ByteEntry {
+        final byte[] bytes;
+        final int hash;
+        final int code;
+
+        ByteEntry(byte[] bytes, int hash, int code) {
+            this.bytes = bytes;
+            this.hash = hash;
+            this.code = code;
+        }
+
+        boolean matches(byte[] buffer, int offset, int length) {
+            return bytes.length == length &&
+                   Arrays.equals(bytes, 0, length, buffer, offset, offset + length);
+        }
+    }
+
+    public CategoryDictionary(String name, String... seed) {
+        this.name = name;
+        for (String value : seed) {
+            intern(value);
+        }
+    }
+
+    /** Returns the code for {@code value}, assigning the next free code if it is new. */
+    public int intern(String value) {
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        synchronized (this) {
+            code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            int next = size;
+            String[] current = values;
+            if (next == current.length) {
+                current = Arrays.copyOf(current, next * 2);
+            }
+            current[next] = value;
+            values = current;
+            // Publish the value before the code becomes visible to readers
+            size = next + 1;
+            codes.put(value, next);
+            return next;
+        }
+    }
+
+    /**
+     * Returns the code for the UTF-8 value in {@code buffer[offset, offset + length)},
+     * assigning the next free code if it is new. Allocates only on first sight of a value.
+     */
+    public int intern(byte[] buffer, int offset, int length) {
+        int hash = hash(buffer, offset, length);
+        ByteEntry[] table = byteIndex;
+        int mask = table.length - 1;
+        for (int i = hash & mask; table[i] != null; i = (i + 1) & mask) {
+            ByteEntry entry = table[i];
+            if (entry.hash == hash && entry.matches(buffer, offset, length)) {
+                return entry.code;
+            }
+        }
+        return internBytes(Arrays.copyOfRange(buffer, offset, offset + length), hash);
+    }
+
+    private synchronized int internBytes(byte[] key, int hash) {
+        ByteEntry[] table = byteIndex;
+        int mask = table.length - 1;
+        for (int i = hash & mask; table[i] != null; i = (i + 1) & mask) {
+            if (table[i].hash == hash && table[i].matches(key, 0, key.length)) {
+                return table[i].code;
+            }
+        }
+
+        int code = intern(new String(key, StandardCharsets.UTF_8));
+
+        // Keep the load factor at or below one half
+        int capacity = table.length;
+        if ((byteIndexSize + 1) * 2 > capacity) {
+            capacity *= 2;
+        }
+        ByteEntry[] copy = new ByteEntry[capacity];
+        int copyMask = capacity - 1;
+        for (ByteEntry entry : table) {
+            if (entry != null) insert(copy, copyMask, entry);
+        }
+        insert(copy, copyMask, new ByteEntry(key, hash, code));
+        byteIndexSize++;
+        byteIndex = copy;
+        return code;
+    }
+
+    private static void insert(ByteEntry[] table, int mask, ByteEntry entry) {
+        int i = entry.hash & mask;
+        while (table[i] != null) {
+            i = (i + 1) & mask;
+        }
+        table[i] = entry;
+    }
+
+    private static int hash(byte[] buffer, int offset, int length) {
+        int h = 1;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            h = 31 * h + buffer[i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /** Returns the code for {@code value}, or -1 if it has never been interned. */
+    public int lookup(String value) {
+        Integer code = codes.get(value);
+        return code != null ? code : -1;
+    }
+
+    public String valueOf(int code) {
+        if (code < 0 || code >= size) {
+            throw new IllegalArgumentException("Unknown " + name + " code: " + code);
+        }
+        return values[code];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,416 @@
+import weka.classifiers.Classifier;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Local checkpoints of the predictor's state, so a restart resumes in
+ * seconds instead of relearning from an empty window.
+ *
+ * Each partition's {@link HospitalShard} is written to its own file together
+ * with the offset of the next record to consume, by the worker that owns it,
+ * so a restored shard plus the records from that offset on is exactly the
+ * state before the restart. The training reservoir and current model go to a
+ * separate file; they summarize all partitions, so they are not tied to any
+ * offset.
+ *
+ * Files are compact big-endian binary, written to a temporary file and then
+ * renamed over the previous checkpoint, so a crash mid-write leaves the last
+ * complete one in place. They are read back memory-mapped. Dictionary codes
+ * are only stable within one run, so every file ends with the names of the
+ * codes it uses and they are re-interned on restore.
+ */
+public class Checkpoints {
+    private static final int SHARD_MAGIC = 0x4f425348;  // "OBSH"
+    private static final int MODEL_MAGIC = 0x4f424d44;  // "OBMD"
+    private static final int FORMAT_VERSION = 2;
+
+    private final Path directory;
+    private final String topic;
+
+    public Checkpoints(Path directory, String topic) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.topic = topic;
+    }
+
+    /** Checkpoints in {@code path}, or null if checkpointing is disabled (empty or "none"). */
+    public static Checkpoints fromConfig(String path, String topic) throws IOException {
+        if (path == null || path.isEmpty() || path.equals("none")) return null;
+        return new Checkpoints(Paths.get(path), topic);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /** Writes {@code shard}, which has processed every record before {@code nextOffset}. */
+    public void writeShard(HospitalShard shard, long nextOffset) throws IOException {
+        BitSet hospitals = new BitSet();
+        BitSet symptoms = new BitSet();
+        BitSet severities = new BitSet();
+
+        write(shardFile(shard.getPartition()), out -> {
+            out.writeInt(SHARD_MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(shard.getPartition());
+            out.writeLong(nextOffset);
+            out.writeLong(System.currentTimeMillis());
+
+            try {
+                // Case store, one row per case in time order
+                CaseStore cases = shard.getCaseStore();
+                out.writeInt(cases.size());
+                cases.scan(0, Long.MAX_VALUE, (timestamp, hospital, symptom, severity, temperature) -> {
+                    hospitals.set(hospital);
+                    symptoms.set(symptom);
+                    severities.set(severity);
+                    try {
+                        out.writeLong(timestamp);
+                        out.writeInt(hospital);
+                        out.writeInt(symptom);
+                        out.writeInt(severity);
+                        out.writeDouble(temperature);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+
+                // Per-hospital metrics and window contents; windows are rebuilt on
+                // restore, which recomputes their running aggregates
+                int[] hospitalCount = new int[1];
+                shard.forEachHospital((hospital, metrics, window) -> hospitalCount[0]++);
+                out.writeInt(hospitalCount[0]);
+                shard.forEachHospital((hospital, metrics, window) -> {
+                    hospitals.set(hospital);
+                    try {
+                        writeHospital(out, hospital, metrics, window, symptoms);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            int tablesStart = out.size();
+            writeCodes(out, CategoryDictionary.HOSPITALS, hospitals);
+            writeCodes(out, CategoryDictionary.SYMPTOMS, symptoms);
+            writeCodes(out, CategoryDictionary.SEVERITIES, severities);
+            out.writeInt(tablesStart);
+        });
+    }
+
+    private static void writeHospital(DataOutputStream out, int hospital, MLOutbreakPredictor.HospitalMetrics metrics,
+                                      HospitalWindow window, BitSet symptoms) throws IOException {
+        out.writeInt(hospital);
+        out.writeDouble(metrics.caseVelocity);
+        out.writeDouble(metrics.avgTemperature);
+        out.writeDouble(metrics.symptomDiversity);
+        out.writeDouble(metrics.severeCaseRatio);
+        out.writeInt(metrics.symptomPrevalence.length);
+        for (double share : metrics.symptomPrevalence) {
+            out.writeDouble(share);
+        }
+        out.writeInt(metrics.totalCases);
+        out.writeLong(metrics.lastUpdateTime);
+        out.writeBoolean(metrics.hadRecentOutbreak);
+        out.writeLong(metrics.alertConditionSince);
+        if (window == null) {
+            out.writeLong(-1);
+            return;
+        }
+        out.writeLong(window.getWindowMillis());
+        out.writeInt(window.size());
+        window.forEach((timestamp, temperature, symptom, severe) -> {
+            symptoms.set(symptom);
+            try {
+                out.writeLong(timestamp);
+                out.writeDouble(temperature);
+                out.writeInt(symptom);
+                out.writeBoolean(severe);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Restores the checkpoint of {@code shard}'s partition into the (empty)
+     * shard. Returns the offset to resume consuming from, or -1 if there is
+     * no checkpoint for the partition.
+     */
+    public long readShard(HospitalShard shard) throws IOException {
+        ByteBuffer in = map(shardFile(shard.getPartition()));
+        if (in == null) return -1;
+        expectHeader(in, SHARD_MAGIC);
+        int partition = in.getInt();
+        if (partition != shard.getPartition()) {
+            throw new IOException("Checkpoint is for partition " + partition + ", not " + shard.getPartition());
+        }
+        long nextOffset = in.getLong();
+        in.getLong(); // written at
+
+        // The code tables sit after the body, so read them first
+        int body = in.position();
+        in.position(in.getInt(in.limit() - Integer.BYTES));
+        int[] hospitalCodes = readCodes(in, CategoryDictionary.HOSPITALS);
+        int[] symptomCodes = readCodes(in, CategoryDictionary.SYMPTOMS);
+        int[] severityCodes = readCodes(in, CategoryDictionary.SEVERITIES);
+        in.position(body);
+
+        CaseStore cases = shard.getCaseStore();
+        int caseCount = in.getInt();
+        for (int i = 0; i < caseCount; i++) {
+            long timestamp = in.getLong();
+            int hospital = hospitalCodes[in.getInt()];
+            int symptom = symptomCodes[in.getInt()];
+            int severity = severityCodes[in.getInt()];
+            cases.add(timestamp, hospital, symptom, severity, in.getDouble());
+        }
+        long now = System.currentTimeMillis();
+        cases.evict(now);
+        // The space-time scan's bucket counts are rebuilt from the restored cases
+        cases.scan(now - SpaceTimeScan.BASELINE_BUCKETS * SpaceTimeScan.BUCKET_MS, Long.MAX_VALUE,
+                   (timestamp, hospital, symptoms, severity, temperature) ->
+                       shard.metrics(hospital).recentCases.record(timestamp));
+
+        int hospitalCount = in.getInt();
+        for (int h = 0; h < hospitalCount; h++) {
+            int hospital = hospitalCodes[in.getInt()];
+            MLOutbreakPredictor.HospitalMetrics metrics = shard.metrics(hospital);
+            metrics.caseVelocity = in.getDouble();
+            metrics.avgTemperature = in.getDouble();
+            metrics.symptomDiversity = in.getDouble();
+            metrics.severeCaseRatio = in.getDouble();
+            int tracked = in.getInt();
+            for (int i = 0; i < tracked; i++) {
+                double share = in.getDouble();
+                if (i < metrics.symptomPrevalence.length) metrics.symptomPrevalence[i] = share;
+            }
+            metrics.totalCases = in.getInt();
+            metrics.lastUpdateTime = in.getLong();
+            metrics.hadRecentOutbreak = in.get() != 0;
+            metrics.alertConditionSince = in.getLong();
+            long windowMillis = in.getLong();
+            if (windowMillis < 0) {
+                MLOutbreakPredictor.markChanged(metrics);
+                continue;
+            }
+            HospitalWindow window = shard.window(hospital, windowMillis);
+            int size = in.getInt();
+            for (int i = 0; i < size; i++) {
+                long timestamp = in.getLong();
+                double temperature = in.getDouble();
+                int symptom = symptomCodes[in.getInt()];
+                window.add(timestamp, temperature, symptom, in.get() != 0);
+            }
+            if (!window.isEmpty()) {
+                shard.scheduleExpiry(hospital, window.oldestTimestamp() + windowMillis + 1);
+            }
+            // Evaluated on the next analysis pass like any updated hospital
+            MLOutbreakPredictor.markChanged(metrics);
+        }
+        return nextOffset;
+    }
+
+    /** Writes the training reservoir and, if there is one, the current model. */
+    public void writeModel(ModelTrainer.Snapshot snapshot) throws IOException {
+        Instances reservoir = snapshot.getReservoir();
+        TrainedModel model = snapshot.getModel();
+        byte[] classifier = model == null ? null : serialize(model.getClassifier());
+
+        write(directory.resolve(topic + "-model.ckpt"), out -> {
+            out.writeInt(MODEL_MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(System.currentTimeMillis());
+
+            out.writeInt(reservoir.numAttributes());
+            out.writeLong(snapshot.getExamplesSeen());
+            out.writeInt(reservoir.numInstances());
+            for (int i = 0; i < reservoir.numInstances(); i++) {
+                Instance example = reservoir.instance(i);
+                for (int j = 0; j < reservoir.numAttributes(); j++) {
+                    out.writeDouble(example.value(j));
+                }
+            }
+
+            out.writeBoolean(model != null);
+            if (model != null) {
+                out.writeInt(model.getVersion());
+                out.writeInt(model.getTrainingInstances());
+                out.writeLong(model.getTrainingMillis());
+                out.writeDouble(model.getTrainingAccuracy());
+                out.writeLong(model.getSwappedAt());
+                out.writeInt(classifier.length);
+                out.write(classifier);
+                // The compiled form of a Weka model depends on its training data,
+                // so it is saved rather than recompiled
+                CompiledModel compiled = model.getCompiled();
+                out.writeBoolean(compiled != null);
+                if (compiled != null) {
+                    double[] coefficients = compiled.getCoefficients();
+                    out.writeInt(compiled.getNumClasses());
+                    out.writeInt(compiled.getNumFeatures());
+                    for (double coefficient : coefficients) {
+                        out.writeDouble(coefficient);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Reads the model checkpoint against {@code header}. Returns null if there
+     * is none, or if it was written for a different attribute structure.
+     */
+    public ModelTrainer.Snapshot readModel(Instances header) throws IOException {
+        ByteBuffer in = map(directory.resolve(topic + "-model.ckpt"));
+        if (in == null) return null;
+        expectHeader(in, MODEL_MAGIC);
+        in.getLong(); // written at
+
+        int attributes = in.getInt();
+        if (attributes != header.numAttributes()) {
+            System.err.println("Ignoring model checkpoint with " + attributes + " attributes; the model has " +
+                               header.numAttributes());
+            return null;
+        }
+        long examplesSeen = in.getLong();
+        int count = in.getInt();
+        Instances reservoir = new Instances(header, count);
+        for (int i = 0; i < count; i++) {
+            double[] values = new double[attributes];
+            for (int j = 0; j < attributes; j++) {
+                values[j] = in.getDouble();
+            }
+            reservoir.add(new DenseInstance(1.0, values));
+        }
+
+        TrainedModel model = null;
+        if (in.get() != 0) {
+            int version = in.getInt();
+            int trainingInstances = in.getInt();
+            long trainingMillis = in.getLong();
+            double accuracy = in.getDouble();
+            long swappedAt = in.getLong();
+            byte[] bytes = new byte[in.getInt()];
+            in.get(bytes);
+            Classifier classifier = deserialize(bytes);
+            CompiledModel compiled = null;
+            if (in.get() != 0) {
+                int numClasses = in.getInt();
+                int numFeatures = in.getInt();
+                double[] coefficients = new double[numClasses * (numFeatures + 1)];
+                for (int i = 0; i < coefficients.length; i++) {
+                    coefficients[i] = in.getDouble();
+                }
+                compiled = new CompiledModel(numClasses, numFeatures, coefficients);
+            }
+            Instances modelHeader = new Instances(header, 0);
+            model = new TrainedModel(classifier, compiled, modelHeader,
+                                     version, trainingInstances, trainingMillis, accuracy, swappedAt);
+        }
+        return new ModelTrainer.Snapshot(reservoir, examplesSeen, model);
+    }
+
+    private Path shardFile(int partition) {
+        return directory.resolve(topic + "-" + partition + ".ckpt");
+    }
+
+    private interface Body {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    // Writes to a temporary file, syncs it and renames it over the old checkpoint
+    private static void write(Path file, Body body) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 65536))) {
+            body.write(out);
+            out.flush();
+            stream.getFD().sync();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static MappedByteBuffer map(Path file) throws IOException {
+        if (!Files.exists(file)) return null;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static void expectHeader(ByteBuffer in, int magic) throws IOException {
+        if (in.remaining() < 2 * Integer.BYTES || in.getInt() != magic) {
+            throw new IOException("Not a checkpoint file");
+        }
+        int version = in.getInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported checkpoint version " + version);
+        }
+    }
+
+    // Code table: count, then (code, UTF-8 name) pairs. The tables follow the
+    // body, and the file's final int is the position of the first one.
+    private static void writeCodes(DataOutputStream out, CategoryDictionary dictionary, BitSet codes) throws IOException {
+        out.writeInt(codes.cardinality());
+        for (int code = codes.nextSetBit(0); code >= 0; code = codes.nextSetBit(code + 1)) {
+            byte[] name = dictionary.valueOf(code).getBytes(StandardCharsets.UTF_8);
+            out.writeInt(code);
+            out.writeShort(name.length);
+            out.write(name);
+        }
+    }
+
+    // Maps each saved code to this run's code for the same name
+    private static int[] readCodes(ByteBuffer in, CategoryDictionary dictionary) {
+        int count = in.getInt();
+        int[] codes = new int[0];
+        for (int i = 0; i < count; i++) {
+            int saved = in.getInt();
+            byte[] name = new byte[in.getShort() & 0xffff];
+            in.get(name);
+            if (saved >= codes.length) {
+                codes = Arrays.copyOf(codes, Math.max(saved + 1, codes.length * 2));
+            }
+            codes[saved] = dictionary.intern(new String(name, StandardCharsets.UTF_8));
+        }
+        return codes;
+    }
+
+    private static byte[] serialize(Classifier classifier) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(classifier);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Classifier deserialize(byte[] bytes) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (Classifier) in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unknown classifier in checkpoint: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,171 @@
+import weka.classifiers.Classifier;
+import weka.classifiers.functions.Logistic;
+import weka.core.AttributeStats;
+import weka.core.Instances;
+
+/**
+ * A trained multinomial logistic model flattened to a coefficient array,
+ * for scoring many hospitals at once without Weka's per-instance filters.
+ *
+ * Coefficients are stored row-major, one row per class holding the bias
+ * followed by one weight per feature, in the dataset's attribute order with
+ * the class attribute left out. Scoring works column by column over a
+ * {@link FeatureMatrix}, so the inner loops are plain array arithmetic the
+ * JIT can unroll and vectorize, and it allocates nothing once warm.
+ * Instances are not thread-safe because of the reused scratch buffers.
+ */
+public final class CompiledModel {
+    private final int numClasses;
+    private final int numFeatures;
+    private final double[] coefficients;
+
+    // One logit column per class, reused between calls
+    private double[][] logits = new double[0][];
+
+    CompiledModel(int numClasses, int numFeatures, double[] coefficients) {
+        if (coefficients.length != numClasses * (numFeatures + 1)) {
+            throw new IllegalArgumentException("Expected " + numClasses * (numFeatures + 1) +
+                                               " coefficients, got " + coefficients.length);
+        }
+        this.numClasses = numClasses;
+        this.numFeatures = numFeatures;
+        this.coefficients = coefficients;
+    }
+
+    /**
+     * Compiles {@code classifier}, trained on {@code training}, or returns null
+     * if its type has no compiled form and must be scored through Weka.
+     */
+    public static CompiledModel compile(Classifier classifier, Instances training) {
+        if (classifier instanceof Logistic) {
+            return fromLogistic((Logistic) classifier, training);
+        }
+        if (classifier instanceof OnlineLogistic) {
+            OnlineLogistic online = (OnlineLogistic) classifier;
+            return new CompiledModel(training.numClasses(), training.numAttributes() - 1, online.exportCoefficients());
+        }
+        return null;
+    }
+
+    /**
+     * Weka's Logistic keeps one coefficient column per class except the last,
+     * whose logit is fixed at zero, over the attributes left after its
+     * RemoveUseless filter. Numeric attributes that were constant in the
+     * training data are dropped by that filter and get a zero weight here.
+     */
+    static CompiledModel fromLogistic(Logistic logistic, Instances training) {
+        double[][] par = logistic.coefficients();
+        int numClasses = training.numClasses();
+        int numFeatures = training.numAttributes() - 1;
+
+        int[] keptFeatures = new int[numFeatures];
+        int kept = 0;
+        for (int j = 0; j < numFeatures; j++) {
+            int attribute = j < training.classIndex() ? j : j + 1;
+            if (!training.attribute(attribute).isNumeric()) {
+                throw new IllegalArgumentException("Only numeric attributes can be compiled: " + training.attribute(attribute).name());
+            }
+            AttributeStats stats = training.attributeStats(attribute);
+            if (stats.missingCount < training.numInstances() && stats.distinctCount >= 2) {
+                keptFeatures[kept++] = j;
+            }
+        }
+        if (par.length != kept + 1) {
+            throw new IllegalStateException("Logistic has " + (par.length - 1) + " predictors but " +
+                                            kept + " usable attributes were found");
+        }
+
+        int stride = numFeatures + 1;
+        double[] flat = new double[numClasses * stride];
+        for (int k = 0; k < numClasses - 1; k++) {
+            flat[k * stride] = par[0][k];
+            for (int p = 0; p < kept; p++) {
+                flat[k * stride + 1 + keptFeatures[p]] = par[p + 1][k];
+            }
+        }
+        return new CompiledModel(numClasses, numFeatures, flat);
+    }
+
+    /**
+     * Writes the probability of {@code targetClass} for every row of
+     * {@code features} into {@code out[0, rows)}.
+     */
+    public void scoreClass(FeatureMatrix features, int targetClass, double[] out) {
+        int rows = features.rows();
+        computeLogits(features, rows);
+
+        for (int i = 0; i < rows; i++) {
+            double max = logits[0][i];
+            for (int k = 1; k < numClasses; k++) {
+                max = Math.max(max, logits[k][i]);
+            }
+            double sum = 0.0;
+            for (int k = 0; k < numClasses; k++) {
+                sum += Math.exp(logits[k][i] - max);
+            }
+            out[i] = Math.exp(logits[targetClass][i] - max) / sum;
+        }
+    }
+
+    /** Writes the full class distribution of every row into {@code out[row * numClasses + k]}. */
+    public void score(FeatureMatrix features, double[] out) {
+        int rows = features.rows();
+        computeLogits(features, rows);
+
+        for (int i = 0; i < rows; i++) {
+            double max = logits[0][i];
+            for (int k = 1; k < numClasses; k++) {
+                max = Math.max(max, logits[k][i]);
+            }
+            double sum = 0.0;
+            for (int k = 0; k < numClasses; k++) {
+                double e = Math.exp(logits[k][i] - max);
+                out[i * numClasses + k] = e;
+                sum += e;
+            }
+            for (int k = 0; k < numClasses; k++) {
+                out[i * numClasses + k] /= sum;
+            }
+        }
+    }
+
+    private void computeLogits(FeatureMatrix features, int rows) {
+        if (features.numFeatures() != numFeatures) {
+            throw new IllegalArgumentException("Model expects " + numFeatures + " features, matrix has " + features.numFeatures());
+        }
+        if (logits.length != numClasses || logits[0].length < rows) {
+            logits = new double[numClasses][Math.max(rows, 16)];
+        }
+
+        int stride = numFeatures + 1;
+        for (int k = 0; k < numClasses; k++) {
+            double[] logit = logits[k];
+            double bias = coefficients[k * stride];
+            for (int i = 0; i < rows; i++) {
+                logit[i] = bias;
+            }
+            // Column-at-a-time: a straight multiply-add over contiguous arrays
+            for (int j = 0; j < numFeatures; j++) {
+                double weight = coefficients[k * stride + 1 + j];
+                if (weight == 0.0) continue;
+                double[] column = features.column(j);
+                for (int i = 0; i < rows; i++) {
+                    logit[i] += weight * column[i];
+                }
+            }
+        }
+    }
+
+    public int getNumClasses() {
+        return numClasses;
+    }
+
+    public int getNumFeatures() {
+        return numFeatures;
+    }
+
+    /** Copy of the flat coefficient array, {@code numClasses x (1 + numFeatures)}, row-major. */
+    public double[] getCoefficients() {
+        return coefficients.clone();
+    }
+}
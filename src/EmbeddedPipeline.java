@@ -0,0 +1,66 @@
+/**
+ * Data generator and predictor in one JVM, joined by an
+ * {@link InProcessTransport} instead of Kafka.
+ *
+ * With no further arguments the generator plays the demo stream of
+ * {@link HealthcareProducer}; with load settings (the same {@code --key=value}
+ * keys as {@link LoadGenerator}) it runs a load test and then reports
+ * end-to-end throughput, from generation to the last report the predictor
+ * handled. The predictor runs exactly as it does against the topic and keeps
+ * running after the generator finishes, until it is stopped. A load test that
+ * fails, or whose reports are never all processed because a worker stopped,
+ * exits with status 1, as {@link LoadGenerator} does.
+ */
+public class EmbeddedPipeline {
+    private static final int PARTITIONS = Integer.getInteger("embedded.partitions", MLOutbreakPredictor.WORKER_COUNT);
+    private static final int RING_SIZE = Integer.getInteger("embedded.ring.size", 65536);
+
+    public static void main(String[] args) {
+        InProcessTransport transport = new InProcessTransport(PARTITIONS, RING_SIZE);
+        boolean loadTest = args.length > 1;
+
+        Thread generator = new Thread(() -> {
+            try {
+                if (loadTest) {
+                    long start = System.nanoTime();
+                    boolean succeeded = new LoadGenerator(LoadGenerator.Config.parse(args), transport).run();
+                    if (!awaitDrained(transport)) {
+                        System.err.println("❌ Load test failed: " + transport.queued() +
+                                           " report(s) left in rings no worker is draining");
+                        succeeded = false;
+                    }
+                    summarize(transport, System.nanoTime() - start);
+                    if (!succeeded) System.exit(1);
+                } else {
+                    HealthcareProducer.stream(transport);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                System.err.println("Error running embedded generator: " + e.getMessage());
+                if (loadTest) System.exit(1);
+            }
+        }, "embedded-generator");
+        generator.setDaemon(true);
+        generator.start();
+
+        MLOutbreakPredictor.run(transport);
+    }
+
+    // Waits until the workers have taken every report out of the rings; false
+    // if a ring closed first, since its worker has stopped and never will
+    private static boolean awaitDrained(InProcessTransport transport) throws InterruptedException {
+        while (transport.queued() > 0) {
+            if (transport.isClosed()) return false;
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    private static void summarize(InProcessTransport transport, long elapsedNanos) {
+        long processed = MLOutbreakPredictor.METRICS.getRecordsProcessed();
+        System.out.println(String.format(
+            "🏁 Embedded pipeline: %d reports processed end to end, %.0f records/s, %d ring stall(s)",
+            processed, processed * 1e9 / elapsedNanos, transport.getStalls()));
+    }
+}
@@ -0,0 +1,403 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Console and alert output, written off the processing threads.
+ *
+ * Callers drop entries into bounded lock-free ring buffers of preallocated
+ * slots, and background threads format them and write them in batches, so a
+ * slow or blocked stdout never stalls consumption. Console lines, including
+ * the console copy of each alert, go through one ring and are dropped (and
+ * counted) when it is full rather than waited for. The record of each alert
+ * goes through a second ring with its own writer, which appends it to a
+ * JSON-lines alert file for downstream consumers and records its latency;
+ * those are never dropped, their callers wait for space instead, but they
+ * no longer wait on the console.
+ *
+ * Outbreak-level alerts are deduplicated per hospital before they take a
+ * slot: after one gets through, repeats of the same type for the same
+ * hospital are suppressed for the cooldown and counted on the next one.
+ */
+public class EventLog implements AutoCloseable {
+    public static final String VERBOSITY_CONFIG = "log.verbosity";
+
+    /** How much goes to the console; each level includes the ones before it. */
+    public enum Verbosity {
+        /** Alerts only. */
+        ALERTS,
+        /** Alerts plus the periodic analysis and prediction summaries. */
+        SUMMARY,
+        /** Everything, including a line per patient report. */
+        RECORDS;
+
+        public static Verbosity fromConfig(String value, Verbosity defaultVerbosity) {
+            return value == null ? defaultVerbosity : valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private static final int KIND_LINE = 0;
+    private static final int KIND_REPORT = 1;
+    private static final int KIND_ALERT = 2;
+    private static final int MAX_BATCH = 1024;
+
+    // One ring slot; fields are written by the claiming thread before the
+    // sequence is published and read by the writer after it sees it
+    private static final class Entry {
+        volatile long sequence;
+        int kind;
+        String text;
+        PredictorMetrics.Alert alert;
+        String hospital;
+        long eventTime;
+        int symptoms;
+        int severity;
+        double temperature;
+        int suppressed;
+    }
+
+    /** Writes one entry on a ring's writer thread. */
+    private interface EntryWriter {
+        void write(Entry entry, long now);
+    }
+
+    // When one hospital last raised an alert of one type, and the repeats since
+    private static final class Cooldown {
+        final AtomicLong lastTime = new AtomicLong();
+        final AtomicInteger suppressed = new AtomicInteger();
+
+        // Repeats suppressed since the last alert that got through, or -1 if this one is suppressed
+        int pass(long now, long cooldownMillis) {
+            while (true) {
+                long last = lastTime.get();
+                if (last != 0 && now - last < cooldownMillis) {
+                    suppressed.incrementAndGet();
+                    return -1;
+                }
+                if (lastTime.compareAndSet(last, now)) return suppressed.getAndSet(0);
+            }
+        }
+    }
+
+    /** Bounded MPMC queue of preallocated entries (after Vyukov) with a single writer. */
+    private final class Ring {
+        private final Entry[] slots;
+        private final int mask;
+        private final AtomicLong tail = new AtomicLong(); // next sequence to claim
+        private long head = 0;                            // next sequence to write; writer thread only
+
+        Ring(int capacity) {
+            int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+            slots = new Entry[size];
+            mask = size - 1;
+            for (int i = 0; i < size; i++) {
+                slots[i] = new Entry();
+                slots[i].sequence = i;
+            }
+        }
+
+        // The slot of a free sequence, or null when full unless mustSucceed,
+        // in which case it waits for the writer; publish it when filled in
+        Entry claim(boolean mustSucceed) {
+            long position = tail.get();
+            while (true) {
+                Entry entry = slots[(int) position & mask];
+                long difference = entry.sequence - position;
+                if (difference == 0) {
+                    if (tail.compareAndSet(position, position + 1)) return entry;
+                    position = tail.get();
+                } else if (difference < 0) {
+                    // Full: the slot still holds an entry from the previous lap.
+                    // Once closed nobody will make room, so alerts are dropped too.
+                    if (!mustSucceed || !running) {
+                        dropped.increment();
+                        return null;
+                    }
+                    Thread.yield();
+                    position = tail.get();
+                } else {
+                    position = tail.get();
+                }
+            }
+        }
+
+        void publish(Entry entry) {
+            // The claimed sequence is one lap behind the slot's current value
+            entry.sequence = entry.sequence + 1;
+        }
+
+        // Hands up to MAX_BATCH published entries to the writer and frees their slots
+        int drain(EntryWriter writer, long now) {
+            int drained = 0;
+            while (drained < MAX_BATCH) {
+                Entry entry = slots[(int) head & mask];
+                if (entry.sequence != head + 1) break;
+                writer.write(entry, now);
+                entry.text = null;
+                entry.hospital = null;
+                entry.alert = null;
+                // Hand the slot back to producers for the next lap
+                entry.sequence = head + slots.length;
+                head++;
+                drained++;
+            }
+            return drained;
+        }
+    }
+
+    private final Verbosity verbosity;
+    private final long cooldownMillis;
+    private final PredictorMetrics metrics;
+    private final PrintStream console;
+    private final BufferedWriter alertFile;
+
+    private final Ring consoleRing;
+    private final Ring alertRing;
+    private final LongAdder dropped = new LongAdder();
+    private final Map<PredictorMetrics.Alert, ConcurrentHashMap<String, Cooldown>> cooldowns =
+        new EnumMap<>(PredictorMetrics.Alert.class);
+
+    // Console writer thread only
+    private final StringBuilder consoleBatch = new StringBuilder(16384);
+    private long droppedReported = 0;
+    // Alert writer thread only
+    private final StringBuilder alertBatch = new StringBuilder(4096);
+
+    private final Thread consoleWriter;
+    private final Thread alertWriter;
+    private volatile boolean running = true;
+
+    /**
+     * @param capacity       size of each ring, rounded up to a power of two
+     * @param alertFilePath  JSON-lines file alerts are appended to, or null for none
+     * @param metrics        where alert latencies are recorded, or null
+     */
+    public EventLog(Verbosity verbosity, int capacity, long cooldownMillis, String alertFilePath,
+                    PredictorMetrics metrics, PrintStream console) throws IOException {
+        this.verbosity = verbosity;
+        this.cooldownMillis = cooldownMillis;
+        this.metrics = metrics;
+        this.console = console;
+        this.alertFile = alertFilePath == null ? null : Files.newBufferedWriter(Paths.get(alertFilePath),
+            StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        this.consoleRing = new Ring(capacity);
+        this.alertRing = new Ring(capacity);
+        for (PredictorMetrics.Alert alert : PredictorMetrics.Alert.values()) {
+            if (deduplicated(alert)) cooldowns.put(alert, new ConcurrentHashMap<>());
+        }
+
+        consoleWriter = new Thread(this::consoleLoop, "event-log-writer");
+        consoleWriter.setDaemon(true);
+        consoleWriter.start();
+        alertWriter = new Thread(this::alertLoop, "alert-writer");
+        alertWriter.setDaemon(true);
+        alertWriter.start();
+    }
+
+    public boolean isEnabled(Verbosity level) {
+        return level.ordinal() <= verbosity.ordinal();
+    }
+
+    /** Writes a console line if {@code level} is enabled; dropped if the ring is full. */
+    public void line(Verbosity level, String text) {
+        if (!isEnabled(level)) return;
+        Entry entry = consoleRing.claim(false);
+        if (entry == null) return;
+        entry.kind = KIND_LINE;
+        entry.text = text;
+        consoleRing.publish(entry);
+    }
+
+    /**
+     * Echoes a patient report at RECORDS verbosity. Only the fields are copied,
+     * so a reused report can be passed, and the line is formatted on the writer.
+     */
+    public void report(PatientReport report) {
+        if (!isEnabled(Verbosity.RECORDS)) return;
+        Entry entry = consoleRing.claim(false);
+        if (entry == null) return;
+        entry.kind = KIND_REPORT;
+        entry.hospital = report.getHospital();
+        entry.symptoms = report.getSymptomsCode();
+        entry.severity = report.getSeverityCode();
+        entry.temperature = report.getTemperature();
+        consoleRing.publish(entry);
+    }
+
+    /**
+     * Raises an alert. {@code eventTime} is the timestamp of the report that
+     * caused it, used for the latency metric, or 0 if it should not be measured.
+     */
+    public void alert(PredictorMetrics.Alert alert, String hospital, long eventTime, String text) {
+        int suppressed = 0;
+        ConcurrentHashMap<String, Cooldown> byHospital = cooldowns.get(alert);
+        if (byHospital != null) {
+            suppressed = byHospital.computeIfAbsent(hospital, h -> new Cooldown())
+                                   .pass(System.currentTimeMillis(), cooldownMillis);
+            if (suppressed < 0) return;
+        }
+
+        Entry record = alertRing.claim(true);
+        if (record != null) {
+            fill(record, alert, hospital, eventTime, text, suppressed);
+            alertRing.publish(record);
+        }
+        Entry line = consoleRing.claim(false);
+        if (line != null) {
+            fill(line, alert, hospital, eventTime, text, suppressed);
+            consoleRing.publish(line);
+        }
+    }
+
+    /** Console lines dropped because the ring was full. */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /** Writes everything already queued and stops the writers. */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(consoleWriter);
+        LockSupport.unpark(alertWriter);
+        try {
+            alertWriter.join(5000);
+            consoleWriter.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void fill(Entry entry, PredictorMetrics.Alert alert, String hospital, long eventTime,
+                             String text, int suppressed) {
+        entry.kind = KIND_ALERT;
+        entry.alert = alert;
+        entry.hospital = hospital;
+        entry.eventTime = eventTime;
+        entry.text = text;
+        entry.suppressed = suppressed;
+    }
+
+    private void consoleLoop() {
+        while (true) {
+            int drained = consoleRing.drain(this::writeConsole, System.currentTimeMillis());
+            long droppedNow = dropped.sum();
+            if (droppedNow > droppedReported) {
+                consoleBatch.append("⚠️ ").append(droppedNow - droppedReported).append(" log lines dropped (output too slow)\n");
+                droppedReported = droppedNow;
+            }
+            if (consoleBatch.length() > 0) {
+                console.print(consoleBatch);
+                console.flush();
+                consoleBatch.setLength(0);
+            }
+            if (drained > 0) continue;
+            if (!running) break;
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        console.flush();
+    }
+
+    private void alertLoop() {
+        while (true) {
+            int drained = alertRing.drain(this::writeAlertRecord, System.currentTimeMillis());
+            if (alertBatch.length() > 0 && alertFile != null) {
+                try {
+                    alertFile.append(alertBatch);
+                    alertFile.flush();
+                } catch (IOException e) {
+                    System.err.println("Error writing alert file: " + e.getMessage());
+                }
+            }
+            alertBatch.setLength(0);
+            if (drained > 0) continue;
+            if (!running) break;
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        try {
+            if (alertFile != null) alertFile.close();
+        } catch (IOException e) {
+            System.err.println("Error closing alert file: " + e.getMessage());
+        }
+    }
+
+    private void writeConsole(Entry entry, long now) {
+        switch (entry.kind) {
+            case KIND_REPORT:
+                consoleBatch.append("📝 ").append(entry.hospital).append(" - ")
+                            .append(CategoryDictionary.SYMPTOMS.valueOf(entry.symptoms))
+                            .append(" (Temp: ").append(entry.temperature).append("°F, ")
+                            .append(CategoryDictionary.SEVERITIES.valueOf(entry.severity)).append(")\n");
+                break;
+            case KIND_ALERT:
+                consoleBatch.append(entry.text);
+                if (entry.suppressed > 0) {
+                    consoleBatch.append(" (+").append(entry.suppressed).append(" repeats suppressed)");
+                }
+                consoleBatch.append('\n');
+                break;
+            default:
+                consoleBatch.append(entry.text).append('\n');
+        }
+    }
+
+    private void writeAlertRecord(Entry entry, long now) {
+        long latency = entry.eventTime > 0 ? Math.max(0, now - entry.eventTime) : -1;
+        if (metrics != null && latency >= 0) {
+            metrics.recordAlert(entry.alert, latency);
+        }
+        if (alertFile == null) return;
+
+        alertBatch.append("{\"time\":").append(now)
+                  .append(",\"type\":\"").append(entry.alert.label()).append('"')
+                  .append(",\"hospital\":");
+        appendJsonString(alertBatch, entry.hospital);
+        if (entry.eventTime > 0) {
+            alertBatch.append(",\"eventTime\":").append(entry.eventTime)
+                      .append(",\"latencyMs\":").append(latency);
+        }
+        alertBatch.append(",\"suppressed\":").append(entry.suppressed)
+                  .append(",\"message\":");
+        appendJsonString(alertBatch, entry.text);
+        alertBatch.append("}\n");
+    }
+
+    // Patient-level alerts are always written; outbreak-level ones once per cooldown
+    private static boolean deduplicated(PredictorMetrics.Alert alert) {
+        return alert != PredictorMetrics.Alert.CRITICAL_FEVER;
+    }
+
+    private static void appendJsonString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,46 @@
+import java.util.Arrays;
+
+/**
+ * Struct-of-arrays feature matrix: one primitive column per model feature,
+ * one row per hospital. Columns are reused between scoring passes and only
+ * grow, so filling and scoring the matrix allocates nothing once warm.
+ */
+public final class FeatureMatrix {
+    private final double[][] columns;
+    private int rows = 0;
+
+    public FeatureMatrix(int numFeatures, int initialCapacity) {
+        columns = new double[numFeatures][Math.max(initialCapacity, 1)];
+    }
+
+    /** Clears the matrix and makes room for {@code rowCount} rows. */
+    public void reset(int rowCount) {
+        if (rowCount > columns[0].length) {
+            int capacity = Math.max(rowCount, columns[0].length * 2);
+            for (int j = 0; j < columns.length; j++) {
+                columns[j] = Arrays.copyOf(columns[j], capacity);
+            }
+        }
+        rows = rowCount;
+    }
+
+    public void set(int row, int feature, double value) {
+        columns[feature][row] = value;
+    }
+
+    public double get(int row, int feature) {
+        return columns[feature][row];
+    }
+
+    public double[] column(int feature) {
+        return columns[feature];
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int numFeatures() {
+        return columns.length;
+    }
+}
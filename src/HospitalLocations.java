@@ -0,0 +1,82 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Map positions of hospitals for the space-time scan, as x/y kilometres on a
+ * flat projection centred on the configured hospitals.
+ *
+ * Positions are read from a CSV file of {@code name,latitude,longitude}
+ * lines. Hospitals missing from it are placed at a stable pseudo-random point
+ * derived from their name within a 200 km square around the same centre, so
+ * they can share a cluster with listed hospitals, and the demo and load-test
+ * hospitals, which have no real addresses, still exercise the scan.
+ */
+public class HospitalLocations {
+    private static final double KM_PER_DEGREE_LATITUDE = 110.574;
+    private static final double KM_PER_DEGREE_LONGITUDE = 111.320; // at the equator
+    private static final double PLACEMENT_KM = 200.0;
+
+    private final Map<String, double[]> positions = new ConcurrentHashMap<>();
+
+    /** Locations from the CSV file at {@code path}; an empty path or "none" configures none. */
+    public static HospitalLocations fromConfig(String path) throws IOException {
+        HospitalLocations locations = new HospitalLocations();
+        if (path != null && !path.isEmpty() && !path.equalsIgnoreCase("none")) {
+            locations.load(Files.readAllLines(Paths.get(path), StandardCharsets.UTF_8));
+        }
+        return locations;
+    }
+
+    /** Adds {@code name,latitude,longitude} lines; blank lines and lines starting with '#' are skipped. */
+    void load(List<String> lines) throws IOException {
+        List<String> names = new ArrayList<>();
+        List<double[]> coordinates = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            // Split from the end, so names may contain commas
+            int lonComma = line.lastIndexOf(',');
+            int latComma = lonComma > 0 ? line.lastIndexOf(',', lonComma - 1) : -1;
+            if (latComma <= 0) {
+                throw new IOException("Expected name,latitude,longitude at line " + (i + 1) + ": " + line);
+            }
+            try {
+                double latitude = Double.parseDouble(line.substring(latComma + 1, lonComma).trim());
+                double longitude = Double.parseDouble(line.substring(lonComma + 1).trim());
+                names.add(line.substring(0, latComma).trim());
+                coordinates.add(new double[] {latitude, longitude});
+            } catch (NumberFormatException e) {
+                throw new IOException("Bad coordinates at line " + (i + 1) + ": " + line);
+            }
+        }
+        if (names.isEmpty()) return;
+
+        // Equirectangular projection centred on the mean position, accurate enough at regional scale
+        double meanLatitude = coordinates.stream().mapToDouble(c -> c[0]).average().orElse(0.0);
+        double meanLongitude = coordinates.stream().mapToDouble(c -> c[1]).average().orElse(0.0);
+        double kmPerDegreeLongitude = KM_PER_DEGREE_LONGITUDE * Math.cos(Math.toRadians(meanLatitude));
+        for (int i = 0; i < names.size(); i++) {
+            double[] c = coordinates.get(i);
+            positions.put(names.get(i), new double[] {(c[1] - meanLongitude) * kmPerDegreeLongitude,
+                                                      (c[0] - meanLatitude) * KM_PER_DEGREE_LATITUDE});
+        }
+    }
+
+    /** The {x, y} position of {@code hospital} in kilometres. */
+    public double[] positionOf(String hospital) {
+        return positions.computeIfAbsent(hospital, HospitalLocations::placeByName);
+    }
+
+    // Within the square centred on the origin, which is the centre of the listed hospitals
+    private static double[] placeByName(String hospital) {
+        SplittableRandom random = new SplittableRandom(hospital.hashCode());
+        return new double[] {(random.nextDouble() - 0.5) * PLACEMENT_KM, (random.nextDouble() - 0.5) * PLACEMENT_KM};
+    }
+}
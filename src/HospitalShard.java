@@ -0,0 +1,128 @@
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Hospital state owned by one topic partition: the case store, the sliding
+ * windows and the metrics of every hospital whose reports land on it.
+ *
+ * Reports are keyed by hospital, so each hospital lives on exactly one
+ * partition and a shard is only ever written by the worker that currently
+ * owns the partition. The metrics objects are also published to a shared
+ * registry so analysis and training can read across all shards; a shard
+ * withdraws them when its partition is revoked.
+ *
+ * Each hospital with cases in its window also has a timer on the shard's
+ * {@link TimerWheel} for when its oldest case leaves the window, so a
+ * hospital that stops reporting still has its window expired.
+ */
+public class HospitalShard {
+    /** Receives each hospital a shard holds state for; the window may be null. */
+    public interface HospitalVisitor {
+        void visit(int hospital, MLOutbreakPredictor.HospitalMetrics metrics, HospitalWindow window);
+    }
+
+    private static final long EXPIRY_TICK_MS = 1000;
+    private static final int EXPIRY_SLOTS = 64; // one turn covers a one-minute window
+
+    private final int partition;
+    private final Map<String, MLOutbreakPredictor.HospitalMetrics> registry;
+    private final CaseStore cases = new CaseStore();
+    private final TimerWheel expiryTimers;
+
+    // Indexed by hospital code
+    private HospitalWindow[] windows = new HospitalWindow[8];
+    private MLOutbreakPredictor.HospitalMetrics[] metrics = new MLOutbreakPredictor.HospitalMetrics[8];
+    private long[] expiryDeadlines = new long[8]; // the live timer of each hospital, 0 if none
+
+    public HospitalShard(int partition, Map<String, MLOutbreakPredictor.HospitalMetrics> registry) {
+        this(partition, registry, System.currentTimeMillis());
+    }
+
+    /** A shard whose clock starts at {@code startTime}, for replaying past reports. */
+    public HospitalShard(int partition, Map<String, MLOutbreakPredictor.HospitalMetrics> registry, long startTime) {
+        this.partition = partition;
+        this.registry = registry;
+        this.expiryTimers = new TimerWheel(EXPIRY_TICK_MS, EXPIRY_SLOTS, startTime);
+    }
+
+    public int getPartition() {
+        return partition;
+    }
+
+    public CaseStore getCaseStore() {
+        return cases;
+    }
+
+    public HospitalWindow window(int hospital, long windowMillis) {
+        ensureCapacity(hospital);
+        HospitalWindow window = windows[hospital];
+        if (window == null) {
+            window = new HospitalWindow(windowMillis);
+            windows[hospital] = window;
+        }
+        return window;
+    }
+
+    public MLOutbreakPredictor.HospitalMetrics metrics(int hospital) {
+        ensureCapacity(hospital);
+        MLOutbreakPredictor.HospitalMetrics hospitalMetrics = metrics[hospital];
+        if (hospitalMetrics == null) {
+            String name = CategoryDictionary.HOSPITALS.valueOf(hospital);
+            hospitalMetrics = new MLOutbreakPredictor.HospitalMetrics(name);
+            metrics[hospital] = hospitalMetrics;
+            registry.put(name, hospitalMetrics);
+        }
+        return hospitalMetrics;
+    }
+
+    /**
+     * Arranges for {@link #expireDue} to hand back {@code hospital} at
+     * {@code deadline}, unless it already has an earlier timer; the handler of
+     * that one reschedules if the window still needs it.
+     */
+    public void scheduleExpiry(int hospital, long deadline) {
+        ensureCapacity(hospital);
+        long scheduled = expiryDeadlines[hospital];
+        if (scheduled != 0 && scheduled <= deadline) return;
+        expiryDeadlines[hospital] = deadline;
+        expiryTimers.schedule(hospital, deadline);
+    }
+
+    /** Hands every hospital whose expiry timer is due to {@code handler}. */
+    public int expireDue(long now, TimerWheel.Handler handler) {
+        return expiryTimers.advance(now, (hospital, deadline) -> {
+            // Superseded by an earlier timer for the same hospital
+            if (expiryDeadlines[hospital] != deadline) return;
+            expiryDeadlines[hospital] = 0;
+            handler.expired(hospital, deadline);
+        });
+    }
+
+    /** Visits every hospital of this shard, in hospital code order. */
+    public void forEachHospital(HospitalVisitor visitor) {
+        for (int hospital = 0; hospital < metrics.length; hospital++) {
+            if (metrics[hospital] != null) {
+                visitor.visit(hospital, metrics[hospital], windows[hospital]);
+            }
+        }
+    }
+
+    /** Withdraws this shard's hospitals from the shared registry. */
+    public void release() {
+        for (int hospital = 0; hospital < metrics.length; hospital++) {
+            if (metrics[hospital] != null) {
+                // Only remove our own entry, in case the new owner already registered
+                registry.remove(CategoryDictionary.HOSPITALS.valueOf(hospital), metrics[hospital]);
+            }
+        }
+    }
+
+    private void ensureCapacity(int hospital) {
+        if (hospital >= metrics.length) {
+            int capacity = Math.max(hospital + 1, metrics.length * 2);
+            windows = Arrays.copyOf(windows, capacity);
+            metrics = Arrays.copyOf(metrics, capacity);
+            expiryDeadlines = Arrays.copyOf(expiryDeadlines, capacity);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+import java.util.Arrays;
+
+/**
+ * Sliding one-minute window of recent cases for a single hospital.
+ *
+ * Cases are kept in a ring buffer ordered by event timestamp, together with
+ * running sums and per-symptom counters, so adding a case and expiring old
+ * ones costs O(1) amortized instead of rescanning the hospital's history.
+ * Patterns and individual symptoms are counted separately, so symptom
+ * diversity (distinct patterns) and each symptom's prevalence are array reads.
+ * Not thread-safe: each window is owned by the thread that ingests its cases.
+ */
+public class HospitalWindow {
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Receives the cases in the window, oldest first. */
+    public interface CaseVisitor {
+        void visit(long timestamp, double temperature, int symptomsCode, boolean isSevere);
+    }
+
+    private final long windowMillis;
+
+    // Ring buffer columns, oldest case at head
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private double[] temperatures = new double[INITIAL_CAPACITY];
+    private int[] symptoms = new int[INITIAL_CAPACITY];
+    private boolean[] severe = new boolean[INITIAL_CAPACITY];
+    private int head = 0;
+    private int size = 0;
+
+    // Running aggregates over the cases currently in the window
+    private double temperatureSum = 0.0;
+    private int severeCount = 0;
+    private int[] symptomCounts = new int[INITIAL_CAPACITY]; // indexed by symptoms code
+    private int distinctSymptoms = 0;
+    private int[] nameCounts = new int[SymptomSets.TRACKED.length]; // indexed by individual symptom code
+
+    public HospitalWindow(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    /** Adds a case to the window, keeping the buffer sorted by timestamp. */
+    public void add(long timestamp, double temperature, int symptomsCode, boolean isSevere) {
+        if (size == timestamps.length) {
+            grow();
+        }
+
+        // Reports arrive almost in order, so the insertion point is found
+        // within a step or two of the tail
+        int pos = size;
+        while (pos > 0 && timestamps[index(pos - 1)] > timestamp) {
+            int from = index(pos - 1);
+            int to = index(pos);
+            timestamps[to] = timestamps[from];
+            temperatures[to] = temperatures[from];
+            symptoms[to] = symptoms[from];
+            severe[to] = severe[from];
+            pos--;
+        }
+
+        int slot = index(pos);
+        timestamps[slot] = timestamp;
+        temperatures[slot] = temperature;
+        symptoms[slot] = symptomsCode;
+        severe[slot] = isSevere;
+        size++;
+
+        temperatureSum += temperature;
+        if (isSevere) severeCount++;
+        if (symptomsCode >= symptomCounts.length) {
+            symptomCounts = Arrays.copyOf(symptomCounts, Math.max(symptomsCode + 1, symptomCounts.length * 2));
+        }
+        if (symptomCounts[symptomsCode]++ == 0) distinctSymptoms++;
+        for (int name : SymptomSets.codesOf(symptomsCode)) {
+            if (name >= nameCounts.length) {
+                nameCounts = Arrays.copyOf(nameCounts, Math.max(name + 1, nameCounts.length * 2));
+            }
+            nameCounts[name]++;
+        }
+    }
+
+    /** Drops every case older than the window relative to {@code currentTime}. */
+    public void expire(long currentTime) {
+        while (size > 0 && currentTime - timestamps[head] > windowMillis) {
+            temperatureSum -= temperatures[head];
+            if (severe[head]) severeCount--;
+
+            if (--symptomCounts[symptoms[head]] == 0) distinctSymptoms--;
+            for (int name : SymptomSets.codesOf(symptoms[head])) {
+                nameCounts[name]--;
+            }
+
+            head = (head + 1) % timestamps.length;
+            size--;
+        }
+
+        // Reset the running sum whenever the window drains so floating-point
+        // error from repeated subtraction cannot accumulate
+        if (size == 0) {
+            head = 0;
+            temperatureSum = 0.0;
+        }
+    }
+
+    /** Visits every case in the window, oldest first. */
+    public void forEach(CaseVisitor visitor) {
+        for (int i = 0; i < size; i++) {
+            int slot = index(i);
+            visitor.visit(timestamps[slot], temperatures[slot], symptoms[slot], severe[slot]);
+        }
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    /** Timestamp of the oldest case; only meaningful when the window is not empty. */
+    public long oldestTimestamp() {
+        return timestamps[head];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public double averageTemperature() {
+        return size == 0 ? 98.6 : temperatureSum / size;
+    }
+
+    public int distinctSymptomPatterns() {
+        return distinctSymptoms;
+    }
+
+    /** Share of the cases reporting the individual symptom {@code name}, 0 if none. */
+    public double symptomShare(int name) {
+        if (size == 0 || name >= nameCounts.length) return 0.0;
+        return (double) nameCounts[name] / size;
+    }
+
+    public double severeRatio() {
+        return size == 0 ? 0.0 : (double) severeCount / size;
+    }
+
+    private int index(int offset) {
+        return (head + offset) % timestamps.length;
+    }
+
+    private void grow() {
+        int capacity = timestamps.length * 2;
+        long[] newTimestamps = new long[capacity];
+        double[] newTemperatures = new double[capacity];
+        int[] newSymptoms = new int[capacity];
+        boolean[] newSevere = new boolean[capacity];
+        for (int i = 0; i < size; i++) {
+            int from = index(i);
+            newTimestamps[i] = timestamps[from];
+            newTemperatures[i] = temperatures[from];
+            newSymptoms[i] = symptoms[from];
+            newSevere[i] = severe[from];
+        }
+        timestamps = newTimestamps;
+        temperatures = newTemperatures;
+        symptoms = newSymptoms;
+        severe = newSevere;
+        head = 0;
+    }
+}
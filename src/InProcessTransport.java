@@ -0,0 +1,122 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reports handed from generator threads to predictor workers in the same
+ * JVM, with no broker or serialization in between.
+ *
+ * Each partition is a {@link ReportRing}. Senders pick it from the report's
+ * hospital code, so a hospital's reports stay in order on one ring, and wait
+ * when it is full, so a generator can never outrun the predictor by more
+ * than the rings hold. Each ring is drained by exactly one {@link RingWorker}.
+ *
+ * Nothing is persisted: shard checkpoints need a log to resume from, so
+ * in-process workers always start with empty shards. The model is still
+ * checkpointed, under its own name, so synthetic embedded runs never replace
+ * the model the Kafka predictor starts from.
+ */
+public class InProcessTransport implements ReportTransport {
+    private final ReportRing[] rings;
+
+    public InProcessTransport(int partitions, int ringCapacity) {
+        if (partitions <= 0) {
+            throw new IllegalArgumentException("partitions must be positive");
+        }
+        rings = new ReportRing[partitions];
+        for (int p = 0; p < partitions; p++) {
+            rings[p] = new ReportRing(ringCapacity);
+        }
+    }
+
+    @Override
+    public ReportSender newSender() {
+        return new ReportSender() {
+            @Override
+            public void send(String hospital, PatientReport report, Callback callback) {
+                ReportRing ring = rings[Math.floorMod(report.getHospitalCode(), rings.length)];
+                boolean accepted = ring.put(report);
+                if (callback != null) {
+                    callback.onCompletion(accepted ? null : new IllegalStateException("In-process transport is closed"));
+                }
+            }
+
+            @Override
+            public void flush() {
+                // Reports are in a ring once send returns
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    @Override
+    public List<ReportWorker> newWorkers(int count, Map<String, MLOutbreakPredictor.HospitalMetrics> registry,
+                                         PredictorMetrics metrics, Checkpoints checkpoints, long checkpointMillis) {
+        // Worker w drains rings w, w + workers, ...; extra workers would have nothing to drain
+        int workerCount = Math.min(count, rings.length);
+        List<ReportWorker> workers = new ArrayList<>();
+        for (int w = 0; w < workerCount; w++) {
+            List<Integer> partitions = new ArrayList<>();
+            for (int p = w; p < rings.length; p += workerCount) {
+                partitions.add(p);
+            }
+            workers.add(new RingWorker(w, this, partitions, registry, metrics.newWorker()));
+        }
+        return workers;
+    }
+
+    ReportRing ring(int partition) {
+        return rings[partition];
+    }
+
+    public int partitions() {
+        return rings.length;
+    }
+
+    /** Reports in the rings waiting for a worker. */
+    public long queued() {
+        long queued = 0;
+        for (ReportRing ring : rings) {
+            queued += ring.size();
+        }
+        return queued;
+    }
+
+    /** True once any ring is closed: the transport was closed or a worker stopped. */
+    public boolean isClosed() {
+        for (ReportRing ring : rings) {
+            if (ring.isClosed()) return true;
+        }
+        return false;
+    }
+
+    /** Times a sender found its ring full and had to wait. */
+    public long getStalls() {
+        long stalls = 0;
+        for (ReportRing ring : rings) {
+            stalls += ring.getStalls();
+        }
+        return stalls;
+    }
+
+    @Override
+    public String checkpointName() {
+        return "embedded";
+    }
+
+    @Override
+    public String describe() {
+        return "in-process, " + rings.length + " rings of " + rings[0].capacity() + " reports";
+    }
+
+    /** Stops accepting reports; waiting senders give up. */
+    @Override
+    public void close() {
+        for (ReportRing ring : rings) {
+            ring.close();
+        }
+    }
+}
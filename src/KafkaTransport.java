@@ -0,0 +1,101 @@
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Reports through a Kafka topic, keyed by hospital. Senders are Kafka
+ * producers writing the configured {@link ReportFormat}; workers are
+ * {@link PartitionWorker}s sharing one consumer group.
+ */
+public class KafkaTransport implements ReportTransport {
+    private static final String GROUP_ID = "ml-outbreak-predictor";
+
+    private final String bootstrapServers;
+    private final String topic;
+    private final ReportFormat format;
+    private final Properties producerSettings;
+
+    /**
+     * @param format            format senders write and workers accept ({@link ReportFormat#AUTO} only for workers)
+     * @param producerSettings  extra Kafka producer settings for senders
+     */
+    public KafkaTransport(String bootstrapServers, String topic, ReportFormat format, Properties producerSettings) {
+        this.bootstrapServers = bootstrapServers;
+        this.topic = topic;
+        this.format = format;
+        this.producerSettings = producerSettings;
+    }
+
+    /** A sender with its own producer, since the report serializer is single-threaded. */
+    @Override
+    public ReportSender newSender() {
+        Properties props = new Properties();
+        props.putAll(producerSettings);
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        Producer<String, PatientReport> producer =
+            new KafkaProducer<>(props, new StringSerializer(), new PatientReportSerializer(format));
+
+        return new ReportSender() {
+            @Override
+            public void send(String hospital, PatientReport report, Callback callback) {
+                // The record is serialized inside send, so the report can be reused
+                producer.send(new ProducerRecord<>(topic, hospital, report),
+                              callback == null ? null : (metadata, exception) -> callback.onCompletion(exception));
+            }
+
+            @Override
+            public void flush() {
+                producer.flush();
+            }
+
+            @Override
+            public void close() {
+                producer.close();
+            }
+        };
+    }
+
+    @Override
+    public List<ReportWorker> newWorkers(int count, Map<String, MLOutbreakPredictor.HospitalMetrics> registry,
+                                         PredictorMetrics metrics, Checkpoints checkpoints, long checkpointMillis) {
+        Properties props = new Properties();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, GROUP_ID);
+        // Values are parsed straight from the raw bytes into a reused report
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        // Workers commit after each processed batch and on rebalance
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+
+        // One consumer per worker thread; Kafka spreads the partitions across them,
+        // and shards moving between them on a rebalance go through the handoff
+        ShardHandoff handoff = new ShardHandoff(MLOutbreakPredictor.METRICS_WINDOW_MS);
+        List<ReportWorker> workers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            workers.add(new PartitionWorker(i, topic, props, format, registry, metrics.newWorker(),
+                                            checkpoints, checkpointMillis, handoff));
+        }
+        return workers;
+    }
+
+    @Override
+    public String checkpointName() {
+        return topic;
+    }
+
+    @Override
+    public String describe() {
+        return "Kafka at " + bootstrapServers + ", topic " + topic + ", report format " + format.name().toLowerCase(Locale.ROOT) +
+               (producerSettings.isEmpty() ? "" : ", producer " + producerSettings);
+    }
+}
@@ -0,0 +1,141 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free log-linear histogram in the style of HdrHistogram.
+ *
+ * Values below 128 are counted exactly; above that each power-of-two range
+ * is split into 64 buckets, so any recorded value is reported within about
+ * 1.5% of its true size. Recording is a couple of atomic increments and
+ * never allocates, so it can sit on hot paths shared by many threads.
+ * Values are unit-agnostic; anything above 2^40 is clamped.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;   // 64
+    private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;        // 128
+    private static final int MAX_MAGNITUDE = 40;
+    private static final long MAX_VALUE = (1L << MAX_MAGNITUDE) - 1;
+    private static final int BUCKETS = indexOf(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong(0);
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        if (value > MAX_VALUE) value = MAX_VALUE;
+        counts.incrementAndGet(indexOf(value));
+
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    /** Copies the current counts without clearing them. */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new Snapshot(copy, max.get());
+    }
+
+    /**
+     * Copies and clears the counts, for reporting per interval. Values recorded
+     * concurrently land in either this snapshot or the next, never in neither.
+     */
+    public Snapshot snapshotAndReset() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.getAndSet(i, 0);
+        }
+        return new Snapshot(copy, max.getAndSet(0));
+    }
+
+    static int indexOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift); // in [64, 128)
+        return shift * SUB_BUCKETS + subBucket;
+    }
+
+    // Largest value that maps to the bucket, so percentiles never under-report
+    static long highestValueOf(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index - (long) shift * SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /** Immutable copy of a histogram's counts. */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long max;
+        private final long count;
+        private final double sum;
+
+        private Snapshot(long[] counts, long max) {
+            this.counts = counts;
+            this.max = max;
+            long total = 0;
+            double weighted = 0;
+            for (int i = 0; i < counts.length; i++) {
+                total += counts[i];
+                weighted += (double) counts[i] * highestValueOf(i);
+            }
+            this.count = total;
+            this.sum = weighted;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0.0 : sum / count;
+        }
+
+        /** Value at {@code percentile} (0-100), or 0 if nothing was recorded. */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) return 0;
+            long rank = (long) Math.ceil(percentile / 100.0 * count);
+            if (rank < 1) rank = 1;
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValueOf(i), max);
+                }
+            }
+            return max;
+        }
+
+        /** Combined counts of this snapshot and {@code other}, e.g. to report several threads' histograms as one. */
+        public Snapshot merge(Snapshot other) {
+            long[] combined = counts.clone();
+            for (int i = 0; i < combined.length; i++) {
+                combined[i] += other.counts[i];
+            }
+            return new Snapshot(combined, Math.max(max, other.max));
+        }
+
+        /** Cumulative count of values at or below each bucket's upper bound, for exporting buckets. */
+        public long countAtOrBelow(long value) {
+            long seen = 0;
+            for (int i = 0; i < counts.length && highestValueOf(i) <= value; i++) {
+                seen += counts[i];
+            }
+            return seen;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+import org.apache.kafka.clients.producer.ProducerConfig;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Capacity-testing mode of the data generator.
+ *
+ * Each generator thread sends on a fixed schedule derived from the target
+ * rate (open loop): when the broker or the client falls behind, the thread
+ * keeps sending to catch up instead of quietly sending less. Send latency is
+ * measured from when a record was <em>due</em> to when it was acknowledged,
+ * so stalls show up in the percentiles rather than being hidden by them
+ * (coordinated omission).
+ *
+ * Every thread has its own sender, since the Kafka report serializer reuses
+ * its output buffer. Reports normally go to Kafka; in an
+ * {@link EmbeddedPipeline} they go straight to the predictor in the same JVM,
+ * and latency is measured to when the report was in its ring.
+ */
+public class LoadGenerator {
+
+    /** Load settings, read from a properties file and/or {@code --key=value} arguments. */
+    static final class Config {
+        String bootstrapServers = "localhost:9092";
+        String topic = "patient-reports";
+        ReportFormat format = ReportFormat.fromConfig(System.getProperty(ReportFormat.CONFIG), ReportFormat.JSON);
+        double rate = 1000;          // records per second, all threads together
+        long durationSeconds = 60;
+        int hospitals = 5;
+        int threads = 1;
+        int clusterEvery = 50;       // records per thread between outbreak clusters, 0 = none
+        int clusterSize = 5;
+        long reportIntervalSeconds = 5;
+        final Properties producer = new Properties();
+
+        Config() {
+            producer.put(ProducerConfig.LINGER_MS_CONFIG, "5");
+            producer.put(ProducerConfig.BATCH_SIZE_CONFIG, "65536");
+            producer.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4");
+            producer.put(ProducerConfig.ACKS_CONFIG, "1");
+        }
+
+        /**
+         * Parses {@code --config=file} (applied first) and {@code --key=value}
+         * overrides. Keys are the same in both places; any key starting with
+         * {@code producer.} is passed straight to the Kafka producer.
+         */
+        static Config parse(String[] args) throws IOException {
+            Properties settings = new Properties();
+            for (String arg : args) {
+                if (arg.startsWith("--config=")) {
+                    try (InputStream in = new FileInputStream(arg.substring("--config=".length()))) {
+                        settings.load(in);
+                    }
+                }
+            }
+            for (String arg : args) {
+                if (arg.equals("--load") || arg.equals("--embedded") || arg.startsWith("--config=")) continue;
+                if (!arg.startsWith("--")) {
+                    throw new IllegalArgumentException("Unexpected argument: " + arg);
+                }
+                int eq = arg.indexOf('=');
+                if (eq < 0) {
+                    throw new IllegalArgumentException("Expected --key=value, got " + arg);
+                }
+                settings.setProperty(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+
+            Config config = new Config();
+            for (String key : settings.stringPropertyNames()) {
+                config.set(key, settings.getProperty(key).trim());
+            }
+            config.validate();
+            return config;
+        }
+
+        private void set(String key, String value) {
+            switch (key) {
+                case "bootstrap.servers": bootstrapServers = value; break;
+                case "topic": topic = value; break;
+                case "format": format = ReportFormat.fromConfig(value, format); break;
+                case "rate": rate = Double.parseDouble(value); break;
+                case "duration": durationSeconds = Long.parseLong(value); break;
+                case "hospitals": hospitals = Integer.parseInt(value); break;
+                case "threads": threads = Integer.parseInt(value); break;
+                case "cluster.every": clusterEvery = Integer.parseInt(value); break;
+                case "cluster.size": clusterSize = Integer.parseInt(value); break;
+                case "report.interval": reportIntervalSeconds = Long.parseLong(value); break;
+                case "linger.ms": producer.put(ProducerConfig.LINGER_MS_CONFIG, value); break;
+                case "batch.size": producer.put(ProducerConfig.BATCH_SIZE_CONFIG, value); break;
+                case "compression": producer.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, value); break;
+                case "acks": producer.put(ProducerConfig.ACKS_CONFIG, value); break;
+                default:
+                    if (key.startsWith("producer.")) {
+                        producer.put(key.substring("producer.".length()), value);
+                    } else {
+                        throw new IllegalArgumentException("Unknown load setting: " + key);
+                    }
+            }
+        }
+
+        private void validate() {
+            if (format == ReportFormat.AUTO) {
+                throw new IllegalArgumentException("format must be json or binary");
+            }
+            if (!(rate > 0)) throw new IllegalArgumentException("rate must be positive");
+            if (durationSeconds <= 0) throw new IllegalArgumentException("duration must be positive");
+            if (hospitals <= 0) throw new IllegalArgumentException("hospitals must be positive");
+            if (threads <= 0) throw new IllegalArgumentException("threads must be positive");
+            if (clusterEvery < 0 || clusterSize <= 0) throw new IllegalArgumentException("invalid cluster settings");
+            if (reportIntervalSeconds <= 0) throw new IllegalArgumentException("report.interval must be positive");
+        }
+    }
+
+    private final Config config;
+    private final ReportTransport transport;
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder failedThreads = new LongAdder();
+    private final LatencyHistogram intervalLatency = new LatencyHistogram();
+    private final LatencyHistogram totalLatency = new LatencyHistogram();
+
+    LoadGenerator(Config config, ReportTransport transport) {
+        this.config = config;
+        this.transport = transport;
+    }
+
+    /** Exits with status 2 on invalid settings and 1 when the run fails or any send fails, for scripts and CI. */
+    public static void main(String[] args) {
+        Config config;
+        try {
+            config = Config.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid load settings: " + e.getMessage());
+            System.exit(2);
+            return;
+        } catch (Exception e) {
+            System.err.println("Error reading load settings: " + e);
+            System.exit(2);
+            return;
+        }
+
+        try {
+            boolean succeeded = new LoadGenerator(config, new KafkaTransport(config.bootstrapServers, config.topic,
+                                                                             config.format, config.producer)).run();
+            if (!succeeded) System.exit(1);
+        } catch (Exception e) {
+            System.err.println("Error running load generator: " + e);
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /** Runs the load test; returns false if a generator thread failed or any send was not acknowledged. */
+    public boolean run() throws InterruptedException {
+        System.out.println("🚀 Load test: " + config.rate + " records/s for " + config.durationSeconds + "s across " +
+                           config.hospitals + " hospitals, " + config.threads + " thread(s), " + transport.describe());
+
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(config.durationSeconds);
+        // Each thread takes every threads-th slot of the shared schedule
+        double intervalNanos = 1e9 * config.threads / config.rate;
+
+        Thread[] generators = new Thread[config.threads];
+        for (int t = 0; t < config.threads; t++) {
+            int index = t;
+            long firstSlot = start + (long) (intervalNanos * t / config.threads);
+            generators[t] = new Thread(() -> generate(index, firstSlot, intervalNanos, end), "load-generator-" + t);
+            generators[t].start();
+        }
+
+        long reportNanos = TimeUnit.SECONDS.toNanos(config.reportIntervalSeconds);
+        long nextReport = start + reportNanos;
+        long lastSent = 0;
+        long lastReport = start;
+        while (anyAlive(generators)) {
+            long now = System.nanoTime();
+            if (now >= nextReport) {
+                long total = sent.sum();
+                report(now - start, total - lastSent, now - lastReport, intervalLatency.snapshotAndReset());
+                lastSent = total;
+                lastReport = now;
+                nextReport += reportNanos;
+            }
+            TimeUnit.MILLISECONDS.sleep(Math.max(1, TimeUnit.NANOSECONDS.toMillis(Math.min(nextReport, end) - now)));
+        }
+
+        LatencyHistogram.Snapshot overall = totalLatency.snapshot();
+        long elapsed = System.nanoTime() - start;
+        System.out.println(String.format(
+            "🏁 Load test complete: %d sent, %d acknowledged, %d errors, %.0f records/s achieved (target %.0f)",
+            sent.sum(), overall.getCount(), errors.sum(), sent.sum() * 1e9 / elapsed, config.rate));
+        System.out.println("📊 Overall send latency " + percentiles(overall));
+
+        if (failedThreads.sum() > 0) {
+            System.err.println("❌ Load test failed: " + failedThreads.sum() + " generator thread(s) stopped early");
+            return false;
+        }
+        if (errors.sum() > 0) {
+            System.err.println("❌ Load test failed: " + errors.sum() + " send(s) not acknowledged");
+            return false;
+        }
+        return true;
+    }
+
+    private void generate(int threadIndex, long firstSlot, double intervalNanos, long end) {
+        SyntheticReports reports = new SyntheticReports(config.hospitals, new Random());
+        PatientReport report = new PatientReport();
+        String idPrefix = "LOAD_" + threadIndex + "_";
+        int clusterRemaining = 0;
+
+        try (ReportSender sender = transport.newSender()) {
+            for (long n = 0; ; n++) {
+                long due = firstSlot + (long) (n * intervalNanos);
+                if (due >= end) break;
+                // Wait for the slot; if we are already late, send straight away
+                long wait;
+                while ((wait = due - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+
+                if (clusterRemaining == 0 && config.clusterEvery > 0 && n > 0 && n % config.clusterEvery == 0) {
+                    clusterRemaining = config.clusterSize;
+                    reports.startCluster();
+                }
+
+                int hospital;
+                report.setPatientId(idPrefix + n);
+                if (clusterRemaining > 0) {
+                    clusterRemaining--;
+                    hospital = reports.nextClusterReport(report, System.currentTimeMillis());
+                } else {
+                    hospital = reports.nextReport(report, System.currentTimeMillis());
+                }
+
+                // Senders copy or serialize the report inside send, so it can be reused
+                sender.send(reports.getHospitalName(hospital), report, exception -> {
+                    if (exception != null) {
+                        errors.increment();
+                    } else {
+                        long latency = System.nanoTime() - due;
+                        intervalLatency.record(latency);
+                        totalLatency.record(latency);
+                    }
+                });
+                sent.increment();
+            }
+            sender.flush();
+        } catch (Exception e) {
+            failedThreads.increment();
+            System.err.println("Error in load generator thread " + threadIndex + ": " + e.getMessage());
+        }
+    }
+
+    private void report(long elapsedNanos, long sentInInterval, long intervalNanos, LatencyHistogram.Snapshot latency) {
+        System.out.println(String.format("📈 [%4ds] %.0f records/s, %d acked, %d errors total, latency %s",
+            TimeUnit.NANOSECONDS.toSeconds(elapsedNanos), sentInInterval * 1e9 / intervalNanos,
+            latency.getCount(), errors.sum(), percentiles(latency)));
+    }
+
+    private static String percentiles(LatencyHistogram.Snapshot latency) {
+        return String.format("p50=%.2fms p90=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms",
+            millis(latency.getValueAtPercentile(50)), millis(latency.getValueAtPercentile(90)),
+            millis(latency.getValueAtPercentile(99)), millis(latency.getValueAtPercentile(99.9)),
+            millis(latency.getMax()));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static boolean anyAlive(Thread[] threads) {
+        for (Thread thread : threads) {
+            if (thread.isAlive()) return true;
+        }
+        return false;
+    }
+}
@@ -1,163 +1,349 @@
-import org.apache.kafka.clients.consumer.*;
-import org.apache.kafka.common.serialization.StringDeserializer;
 import weka.core.*;
-import weka.classifiers.functions.Logistic;
-import weka.classifiers.Evaluation;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.time.Duration;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class MLOutbreakPredictor {
     private static final String TOPIC_NAME = "patient-reports";
     private static final String BOOTSTRAP_SERVERS = "localhost:9092";
+    static final long METRICS_WINDOW_MS = 60000; // 1 minute window
+    static final int OUTBREAK_VELOCITY = 2; // cases per minute that raise an outbreak alert
+    static final double CRITICAL_FEVER_F = 103.0;
+    // One consumer thread per partition is the useful maximum; extra workers sit idle
+    static final int WORKER_COUNT = Integer.getInteger("predictor.workers", Runtime.getRuntime().availableProcessors());
     
-    // ML Model and Data
-    private static Logistic outbreakModel;
+    // ML Model and Data. The model is trained and swapped in by the trainer
+    // thread; trainingData is only the attribute structure for new instances.
+    private static final ModelTrainer.Mode MODEL_MODE = ModelTrainer.Mode.fromConfig(System.getProperty("model.mode"));
+    private static final int RESERVOIR_SIZE = Integer.getInteger("model.reservoir.size", 5000);
+    private static final long RETRAIN_INTERVAL_MS = Long.getLong("model.retrain.ms", 60000L);
+    private static final double DRIFT_ACCURACY = Double.parseDouble(System.getProperty("model.drift.accuracy", "0.6"));
+    private static final int DRIFT_WINDOW = 20; // labelled examples scored before drift is judged
+    private static ModelTrainer modelTrainer;
     private static Instances trainingData;
-    private static boolean modelTrained = false;
     
-    // Hospital tracking for features
-    private static Map<String, List<PatientCase>> hospitalCases = new ConcurrentHashMap<>();
+    // Batch scoring buffers, reused across prediction passes (analysis thread only)
+    private static final int FEATURE_COUNT = 4 + SymptomSets.TRACKED.length;
+    private static final int HIGH_RISK_CLASS = 2; // index of "HIGH" in outbreakRisk
+    private static FeatureMatrix scoringFeatures = new FeatureMatrix(FEATURE_COUNT, 64);
+    private static String[] scoringHospitals = new String[64];
+    private static double[] highRiskScores = new double[64];
+    
+    // Hospital tracking for features. Cases and windows live in per-partition
+    // HospitalShards; hospitalMetrics is the shared view across all shards.
     private static Map<String, Double> hospitalRiskScores = new ConcurrentHashMap<>();
     private static Map<String, HospitalMetrics> hospitalMetrics = new ConcurrentHashMap<>();
-    private static long lastAnalysisTime = System.currentTimeMillis();
-    private static long lastMLUpdate = System.currentTimeMillis();
+    // Stage timings, alert latency, throughput and lag; see MetricsServer for the endpoint
+    private static final int METRICS_PORT = Integer.getInteger("metrics.port", 9404);
+    static final PredictorMetrics METRICS = new PredictorMetrics();
+    
+    // Console and alert output go through the event log's background writer
+    private static final EventLog.Verbosity LOG_VERBOSITY =
+        EventLog.Verbosity.fromConfig(System.getProperty(EventLog.VERBOSITY_CONFIG), EventLog.Verbosity.RECORDS);
+    private static final String ALERTS_FILE = System.getProperty("alerts.file", "outbreak-alerts.jsonl");
+    private static final long ALERT_COOLDOWN_MS = Long.getLong("alerts.cooldown.ms", 60000L);
+    private static final int LOG_BUFFER_SIZE = Integer.getInteger("log.buffer.size", 8192);
+    private static EventLog eventLog;
+    
+    // Checkpoints of the windows, reservoir and model for warm restarts; see Checkpoints
+    private static final String CHECKPOINT_DIR = System.getProperty("checkpoint.dir", "checkpoints");
+    private static final long CHECKPOINT_INTERVAL_MS = Long.getLong("checkpoint.interval.ms", 30000L);
+    private static Checkpoints checkpoints;
+    private static long checkpointedExamples = -1;
+    private static int checkpointedVersion = 0;
     
-    static class PatientCase {
-        String patientId, hospital, symptoms, severity;
-        double temperature;
-        long timestamp;
+    // Analysis, prediction and model checkpoints run on one scheduler thread
+    // (the "analysis thread") and only look at hospitals that changed
+    private static final long ANALYSIS_INTERVAL_MS = 8000;
+    static final long PREDICTION_INTERVAL_MS = 15000;
+    static final int TRAINING_MIN_CASES = 3; // hospitals with fewer cases give no training examples
+    private static ScheduledExecutorService analysisScheduler;
+    // Cross-hospital clusters from a space-time scan over neighbouring facilities; see SpaceTimeScan
+    private static final String HOSPITAL_LOCATIONS = System.getProperty("hospital.locations", "");
+    private static final double SCAN_RADIUS_KM = Double.parseDouble(System.getProperty("scan.radius.km", "25"));
+    private static final int SCAN_MAX_HOSPITALS = Integer.getInteger("scan.max.hospitals", 20);
+    private static final int SCAN_WINDOW_BUCKETS = Integer.getInteger("scan.window.buckets", 10);
+    private static final int SCAN_MIN_CASES = Integer.getInteger("scan.min.cases", 10);
+    private static final double SCAN_MIN_LLR = Double.parseDouble(System.getProperty("scan.min.llr", "12"));
+    private static final int CLUSTER_NAMES_SHOWN = 5;
+    private static SpaceTimeScan spaceTimeScan;
+    private static final ConcurrentLinkedQueue<HospitalMetrics> changedHospitals = new ConcurrentLinkedQueue<>();
+    private static final Map<String, HospitalMetrics> changedSinceAnalysis = new LinkedHashMap<>();
+    private static final Map<String, HospitalMetrics> changedSincePrediction = new LinkedHashMap<>();
+    private static int lastScoredTrainingVersion = 0;
+    
+    // Written by the owning worker thread, read by analysis and training
+    static class HospitalMetrics {
+        final String hospital;
+        
+        volatile double caseVelocity = 0.0;         // cases per minute
+        volatile double avgTemperature = 98.6;       // average temperature
+        volatile double symptomDiversity = 0.0;      // number of different symptoms
+        volatile double severeCaseRatio = 0.0;       // ratio of severe cases
+        // Share of cases reporting each catalog symptom, indexed by its code;
+        // written just before the volatile fields above, which publish it
+        final double[] symptomPrevalence = new double[SymptomSets.TRACKED.length];
+        // Cases per time bucket, for the space-time scan
+        final SpaceTimeScan.CaseCounts recentCases = new SpaceTimeScan.CaseCounts();
+        volatile int totalCases = 0;
+        volatile long lastUpdateTime = System.currentTimeMillis();
+        
+        // Historical outbreak indicator (for training labels)
+        volatile boolean hadRecentOutbreak = false;
+        
+        // Timestamp of the report that pushed case velocity over the alert
+        // threshold, 0 while below it; the analysis thread remembers which
+        // episode it has already measured the alert latency of
+        volatile long alertConditionSince = 0;
+        long alertLatencyRecordedFor = 0;
+        
+        // Set by the owning worker when it queues the hospital for the next
+        // analysis pass, cleared by the analysis thread when it takes it
+        volatile boolean queued = false;
         
-        PatientCase(String patientId, String hospital, String symptoms, String severity, double temperature, long timestamp) {
-            this.patientId = patientId;
+        HospitalMetrics(String hospital) {
             this.hospital = hospital;
-            this.symptoms = symptoms;
-            this.severity = severity;
-            this.temperature = temperature;
-            this.timestamp = timestamp;
         }
     }
     
-    static class HospitalMetrics {
-        double caseVelocity = 0.0;         // cases per minute
-        double avgTemperature = 98.6;       // average temperature
-        double symptomDiversity = 0.0;      // number of different symptoms
-        double severeCaseRatio = 0.0;       // ratio of severe cases
-        int totalCases = 0;
-        long lastUpdateTime = System.currentTimeMillis();
+    public static void main(String[] args) {
+        // --replay trains on archived reports instead of consuming the topic
+        if (args.length > 0 && args[0].equals("--replay")) {
+            ReportReplay.main(args);
+            return;
+        }
+        // --embedded runs the data generator in this JVM and skips Kafka
+        if (args.length > 0 && args[0].equals("--embedded")) {
+            EmbeddedPipeline.main(args);
+            return;
+        }
         
-        // Historical outbreak indicator (for training labels)
-        boolean hadRecentOutbreak = false;
+        ReportFormat format = ReportFormat.fromConfig(System.getProperty(ReportFormat.CONFIG), ReportFormat.AUTO);
+        run(new KafkaTransport(BOOTSTRAP_SERVERS, TOPIC_NAME, format, new Properties()));
     }
     
-    public static void main(String[] args) {
+    /** Runs the predictor on reports from {@code transport} until the JVM shuts down. */
+    static void run(ReportTransport transport) {
+        eventLog = createEventLog();
+        try {
+            checkpoints = Checkpoints.fromConfig(CHECKPOINT_DIR, transport.checkpointName());
+        } catch (Exception e) {
+            System.err.println("Error opening checkpoint directory " + CHECKPOINT_DIR + ", checkpoints disabled: " + e.getMessage());
+        }
+        
+        try {
+            spaceTimeScan = new SpaceTimeScan(HospitalLocations.fromConfig(HOSPITAL_LOCATIONS), SCAN_RADIUS_KM,
+                                              SCAN_MAX_HOSPITALS, SCAN_WINDOW_BUCKETS, SCAN_MIN_CASES, SCAN_MIN_LLR);
+        } catch (Exception e) {
+            System.err.println("Error setting up the space-time scan, cross-hospital clusters disabled: " + e.getMessage());
+        }
+        
         // Initialize ML components
         initializeMLModel();
         
-        Properties props = new Properties();
-        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, BOOTSTRAP_SERVERS);
-        props.put(ConsumerConfig.GROUP_ID_CONFIG, "ml-outbreak-predictor");
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
-        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
-        
-        Consumer<String, String> consumer = new KafkaConsumer<>(props);
-        consumer.subscribe(Arrays.asList(TOPIC_NAME));
+        METRICS.register();
+        MetricsServer metricsServer = null;
+        if (METRICS_PORT >= 0) {
+            try {
+                metricsServer = MetricsServer.start(METRICS, METRICS_PORT);
+                System.out.println("📈 Metrics at http://localhost:" + metricsServer.getPort() + "/metrics and over JMX (" +
+                                   PredictorMetrics.OBJECT_NAME + ")");
+            } catch (Exception e) {
+                System.err.println("Error starting metrics endpoint: " + e.getMessage());
+            }
+        }
         
         System.out.println("🤖 AI-POWERED OUTBREAK PREDICTION SYSTEM 🤖");
         System.out.println("Machine Learning + Real-time Healthcare Monitoring");
-        System.out.println("Learning outbreak patterns from live data...");
+        System.out.println("Learning outbreak patterns from live data... (" + transport.describe() +
+                           ", workers: " + WORKER_COUNT + ")");
         System.out.println("=" .repeat(70));
         
-        try {
-            while (true) {
-                ConsumerRecords<String, String> records = consumer.poll(Duration.ofMillis(1000));
-                
-                for (ConsumerRecord<String, String> record : records) {
-                    processPatientReport(record.value());
-                }
-                
-                // Regular outbreak analysis
-                if (System.currentTimeMillis() - lastAnalysisTime > 8000) {
-                    performOutbreakAnalysis();
-                    lastAnalysisTime = System.currentTimeMillis();
-                }
-                
-                // ML model updates
-                if (System.currentTimeMillis() - lastMLUpdate > 15000) {
-                    updateMLModel();
-                    generateRiskPredictions();
-                    lastMLUpdate = System.currentTimeMillis();
+        // Each worker owns the shards of its partitions; the transport decides which those are
+        List<ReportWorker> workers = transport.newWorkers(WORKER_COUNT, hospitalMetrics, METRICS,
+                                                          checkpoints, CHECKPOINT_INTERVAL_MS);
+        List<Thread> workerThreads = new ArrayList<>();
+        for (int i = 0; i < workers.size(); i++) {
+            Thread thread = new Thread(workers.get(i), "predictor-worker-" + i);
+            workerThreads.add(thread);
+            thread.start();
+        }
+        
+        // Analysis and predictions fire on schedule, independent of the workers' polls
+        analysisScheduler = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "outbreak-analysis"));
+        analysisScheduler.scheduleAtFixedRate(() -> runSafely("outbreak analysis", MLOutbreakPredictor::performOutbreakAnalysis),
+                                              ANALYSIS_INTERVAL_MS, ANALYSIS_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        analysisScheduler.scheduleAtFixedRate(() -> runSafely("ML model update", MLOutbreakPredictor::runPredictionPass),
+                                              PREDICTION_INTERVAL_MS, PREDICTION_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        analysisScheduler.scheduleWithFixedDelay(() -> runSafely("model checkpoint", MLOutbreakPredictor::checkpointModel),
+                                                 CHECKPOINT_INTERVAL_MS, CHECKPOINT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        
+        Thread mainThread = Thread.currentThread();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            workers.forEach(ReportWorker::shutdown);
+            transport.close();
+            analysisScheduler.shutdownNow();
+            mainThread.interrupt();
+            try {
+                for (Thread thread : workerThreads) {
+                    thread.join(5000);
                 }
+                analysisScheduler.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
+            // Scoring has stopped, so the live classifier can be serialized
+            checkpointModel();
+            eventLog.close();
+        }));
+        
+        try {
+            analysisScheduler.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        } catch (InterruptedException e) {
+            System.out.println("🛑 Outbreak predictor shutting down");
         } catch (Exception e) {
             System.err.println("Error in ML outbreak prediction: " + e.getMessage());
             e.printStackTrace();
         } finally {
-            consumer.close();
+            workers.forEach(ReportWorker::shutdown);
+            transport.close();
+            analysisScheduler.shutdownNow();
+            if (metricsServer != null) metricsServer.stop();
+            eventLog.close();
+        }
+    }
+    
+    // A periodic task that throws is never run again, so failures are reported and swallowed
+    private static void runSafely(String task, Runnable runnable) {
+        try {
+            runnable.run();
+        } catch (Exception e) {
+            System.err.println("Error in " + task + ": " + e.getMessage());
+        }
+    }
+    
+    private static EventLog createEventLog() {
+        String alertsFile = ALERTS_FILE.isEmpty() || ALERTS_FILE.equals("none") ? null : ALERTS_FILE;
+        try {
+            return new EventLog(LOG_VERBOSITY, LOG_BUFFER_SIZE, ALERT_COOLDOWN_MS, alertsFile, METRICS, System.out);
+        } catch (Exception e) {
+            System.err.println("Error opening alerts file " + alertsFile + ", alerts go to the console only: " + e.getMessage());
+            try {
+                return new EventLog(LOG_VERBOSITY, LOG_BUFFER_SIZE, ALERT_COOLDOWN_MS, null, METRICS, System.out);
+            } catch (Exception unexpected) {
+                throw new IllegalStateException(unexpected);
+            }
         }
     }
     
     private static void initializeMLModel() {
         try {
-            // Create attribute structure for ML model
-            ArrayList<Attribute> attributes = new ArrayList<>();
-            attributes.add(new Attribute("caseVelocity"));      // cases per minute
-            attributes.add(new Attribute("avgTemperature"));    // average temp
-            attributes.add(new Attribute("symptomDiversity"));  // symptom variety
-            attributes.add(new Attribute("severeCaseRatio"));   // severe case ratio
-            
-            // Output class (outbreak risk: low, medium, high)
-            ArrayList<String> classValues = new ArrayList<>();
-            classValues.add("LOW");
-            classValues.add("MEDIUM");
-            classValues.add("HIGH");
-            attributes.add(new Attribute("outbreakRisk", classValues));
+            trainingData = createDatasetHeader();
             
-            // Create dataset structure
-            trainingData = new Instances("OutbreakData", attributes, 0);
-            trainingData.setClassIndex(trainingData.numAttributes() - 1);
+            // Initialize background model training
+            modelTrainer = new ModelTrainer(trainingData, MODEL_MODE, RESERVOIR_SIZE,
+                                            RETRAIN_INTERVAL_MS, DRIFT_ACCURACY, DRIFT_WINDOW, METRICS);
+            restoreModel();
+            modelTrainer.start();
             
-            // Initialize ML model
-            outbreakModel = new Logistic();
-            
-            System.out.println("🧠 ML Model initialized - Ready to learn outbreak patterns!");
+            System.out.println("🧠 ML Model initialized (" + MODEL_MODE.name().toLowerCase(Locale.ROOT) +
+                               " learning, " + RESERVOIR_SIZE + "-example reservoir) - Ready to learn outbreak patterns!");
         } catch (Exception e) {
             System.err.println("Error initializing ML model: " + e.getMessage());
         }
     }
     
-    private static void processPatientReport(String reportJson) {
+    // Picks up the reservoir and model of the previous run, so predictions resume straight away
+    private static void restoreModel() {
+        if (checkpoints == null) return;
         try {
-            // Parse patient data
-            String patientId = extractValue(reportJson, "patientId");
-            String hospital = extractValue(reportJson, "hospital");
-            String symptoms = extractValue(reportJson, "symptoms");
-            String severity = extractValue(reportJson, "severity");
-            double temperature = Double.parseDouble(extractValue(reportJson, "temperature"));
-            long timestamp = Long.parseLong(extractValue(reportJson, "timestamp"));
-            
-            PatientCase patientCase = new PatientCase(patientId, hospital, symptoms, severity, temperature, timestamp);
+            ModelTrainer.Snapshot snapshot = checkpoints.readModel(trainingData);
+            if (snapshot == null) return;
+            modelTrainer.restore(snapshot);
+            TrainedModel model = snapshot.getModel();
+            checkpointedExamples = snapshot.getExamplesSeen();
+            checkpointedVersion = model == null ? 0 : model.getVersion();
+            System.out.println("♻️ Restored " + snapshot.getReservoir().numInstances() + " training examples" +
+                               (model == null ? "" : " and model v" + model.getVersion()) + " from " + checkpoints.getDirectory());
+        } catch (Exception e) {
+            System.err.println("Error restoring model checkpoint, starting untrained: " + e.getMessage());
+        }
+    }
+    
+    // Runs on the analysis thread (or at shutdown, once it has stopped), since it serializes the live classifier
+    private static synchronized void checkpointModel() {
+        if (checkpoints == null || modelTrainer == null) return;
+        try {
+            ModelTrainer.Snapshot snapshot = modelTrainer.snapshot();
+            int version = snapshot.getModel() == null ? 0 : snapshot.getModel().getVersion();
+            if (snapshot.getExamplesSeen() == checkpointedExamples && version == checkpointedVersion) return;
+            checkpoints.writeModel(snapshot);
+            checkpointedExamples = snapshot.getExamplesSeen();
+            checkpointedVersion = version;
+        } catch (Exception e) {
+            System.err.println("Error checkpointing model: " + e.getMessage());
+        }
+    }
+    
+    // Attribute structure shared by training examples and scored instances
+    static Instances createDatasetHeader() {
+        // Create attribute structure for ML model
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        attributes.add(new Attribute("caseVelocity"));      // cases per minute
+        attributes.add(new Attribute("avgTemperature"));    // average temp
+        attributes.add(new Attribute("symptomDiversity"));  // symptom variety
+        attributes.add(new Attribute("severeCaseRatio"));   // severe case ratio
+        for (String symptom : SymptomSets.TRACKED) {
+            attributes.add(new Attribute("prevalence_" + symptom)); // share of cases with the symptom
+        }
+        
+        // Output class (outbreak risk: low, medium, high)
+        ArrayList<String> classValues = new ArrayList<>();
+        classValues.add("LOW");
+        classValues.add("MEDIUM");
+        classValues.add("HIGH");
+        attributes.add(new Attribute("outbreakRisk", classValues));
+        
+        // Create dataset structure
+        Instances dataset = new Instances("OutbreakData", attributes, 0);
+        dataset.setClassIndex(dataset.numAttributes() - 1);
+        return dataset;
+    }
+    
+    // Called by the worker that owns the shard
+    static void processPatientReport(HospitalShard shard, PatientReport report, PredictorMetrics.WorkerMetrics stats) {
+        try {
+            String hospital = report.getHospital();
+            double temperature = report.getTemperature();
             
-            // Add to hospital tracking
-            hospitalCases.computeIfAbsent(hospital, k -> new ArrayList<>()).add(patientCase);
+            // Add to hospital tracking, dropping segments past the retention horizon
+            CaseStore caseStore = shard.getCaseStore();
+            caseStore.add(report.getTimestamp(), report.getHospitalCode(), report.getSymptomsCode(),
+                          report.getSeverityCode(), temperature);
+            long currentTime = System.currentTimeMillis();
+            caseStore.evict(currentTime);
             
             // Update hospital metrics for ML features
-            updateHospitalMetrics(hospital, patientCase);
+            long updateStart = System.nanoTime();
+            HospitalMetrics metrics = updateHospitalMetrics(shard, report, currentTime);
+            stats.recordStage(PredictorMetrics.Stage.UPDATE, System.nanoTime() - updateStart);
             
-            // Show incoming data
-            System.out.println("📝 " + hospital + " - " + symptoms + " (Temp: " + temperature + "°F, " + severity + ")");
+            // Show incoming data (only at records verbosity)
+            eventLog.report(report);
             
             // Immediate critical alerts
-            if (temperature > 103.0) {
-                System.out.println("🔥 CRITICAL FEVER: " + hospital + " - " + temperature + "°F");
+            if (temperature > CRITICAL_FEVER_F) {
+                eventLog.alert(PredictorMetrics.Alert.CRITICAL_FEVER, hospital, report.getTimestamp(),
+                               "🔥 CRITICAL FEVER: " + hospital + " - " + temperature + "°F");
             }
             
-            // Check for outbreak clusters
-            boolean isCluster = reportJson.contains("\"cluster\":true");
-            if (isCluster) {
-                hospitalMetrics.get(hospital).hadRecentOutbreak = true;
-                System.out.println("⚠️ OUTBREAK CLUSTER DETECTED: " + hospital);
+            // Check for outbreak clusters; repeats within the cooldown are suppressed
+            if (report.isCluster()) {
+                eventLog.alert(PredictorMetrics.Alert.CLUSTER, hospital, report.getTimestamp(),
+                               "⚠️ OUTBREAK CLUSTER DETECTED: " + hospital);
             }
             
         } catch (Exception e) {
@@ -165,146 +351,300 @@ public class MLOutbreakPredictor {
         }
     }
     
-    private static void updateHospitalMetrics(String hospital, PatientCase patientCase) {
-        HospitalMetrics metrics = hospitalMetrics.computeIfAbsent(hospital, k -> new HospitalMetrics());
-        
-        long currentTime = System.currentTimeMillis();
-        long timeWindow = 60000; // 1 minute window
+    static HospitalMetrics updateHospitalMetrics(HospitalShard shard, PatientReport report, long currentTime) {
+        HospitalMetrics metrics = shard.metrics(report.getHospitalCode());
+        HospitalWindow window = shard.window(report.getHospitalCode(), METRICS_WINDOW_MS);
         
-        // Get recent cases for this hospital
-        List<PatientCase> recentCases = hospitalCases.get(hospital).stream()
-            .filter(c -> currentTime - c.timestamp <= timeWindow)
-            .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
+        // Slide the window forward instead of rescanning the hospital's history
+        window.add(report.getTimestamp(), report.getTemperature(), report.getSymptomsCode(), report.isSevere());
+        window.expire(currentTime);
+        metrics.recentCases.record(report.getTimestamp());
         
-        if (!recentCases.isEmpty()) {
+        if (!window.isEmpty()) {
             // Update metrics
-            metrics.caseVelocity = recentCases.size(); // cases per minute
-            metrics.avgTemperature = recentCases.stream().mapToDouble(c -> c.temperature).average().orElse(98.6);
-            metrics.symptomDiversity = recentCases.stream().map(c -> c.symptoms).distinct().count();
-            metrics.severeCaseRatio = (double) recentCases.stream()
-                .filter(c -> "severe".equals(c.severity) || "critical".equals(c.severity))
-                .count() / recentCases.size();
+            applyWindow(metrics, window);
             metrics.totalCases++;
             metrics.lastUpdateTime = currentTime;
+            // Expire the window on time even if the hospital goes quiet
+            shard.scheduleExpiry(report.getHospitalCode(), window.oldestTimestamp() + window.getWindowMillis() + 1);
+        }
+        if (window.size() < OUTBREAK_VELOCITY) {
+            metrics.alertConditionSince = 0;
+        } else if (metrics.alertConditionSince == 0) {
+            metrics.alertConditionSince = report.getTimestamp();
+        }
+        if (report.isCluster()) {
+            metrics.hadRecentOutbreak = true;
         }
+        markChanged(metrics);
+        return metrics;
     }
     
+    /**
+     * Expires the windows of the shard's hospitals whose oldest case has
+     * fallen out of the window; called by the owning worker between polls.
+     */
+    static void expireQuietHospitals(HospitalShard shard, long currentTime) {
+        expireQuietHospitals(shard, currentTime, null);
+    }
+    
+    /** As above, also handing each expired hospital to {@code onExpired} if not null. */
+    static void expireQuietHospitals(HospitalShard shard, long currentTime, TimerWheel.Handler onExpired) {
+        shard.expireDue(currentTime, (hospital, deadline) -> {
+            HospitalWindow window = shard.window(hospital, METRICS_WINDOW_MS);
+            HospitalMetrics metrics = shard.metrics(hospital);
+            window.expire(currentTime);
+            applyWindow(metrics, window);
+            if (window.size() < OUTBREAK_VELOCITY) {
+                metrics.alertConditionSince = 0;
+            }
+            if (!window.isEmpty()) {
+                shard.scheduleExpiry(hospital, window.oldestTimestamp() + window.getWindowMillis() + 1);
+            }
+            markChanged(metrics);
+            if (onExpired != null) onExpired.expired(hospital, deadline);
+        });
+    }
+    
+    private static void applyWindow(HospitalMetrics metrics, HospitalWindow window) {
+        for (int symptom = 0; symptom < metrics.symptomPrevalence.length; symptom++) {
+            metrics.symptomPrevalence[symptom] = window.symptomShare(symptom);
+        }
+        metrics.caseVelocity = window.size(); // cases per minute
+        metrics.avgTemperature = window.averageTemperature();
+        metrics.symptomDiversity = window.distinctSymptomPatterns();
+        metrics.severeCaseRatio = window.severeRatio();
+    }
+    
+    /** Queues a hospital for the next analysis and prediction passes; called by its owning worker. */
+    static void markChanged(HospitalMetrics metrics) {
+        if (!metrics.queued) {
+            metrics.queued = true;
+            changedHospitals.offer(metrics);
+        }
+    }
+    
+    // Moves newly changed hospitals into both passes' sets (analysis thread only)
+    private static void collectChangedHospitals() {
+        HospitalMetrics metrics;
+        while ((metrics = changedHospitals.poll()) != null) {
+            // Cleared before the pass reads the metrics, so a later update queues it again
+            metrics.queued = false;
+            // Skip hospitals whose partition has moved away; the new owner's metrics are queued instead
+            if (hospitalMetrics.get(metrics.hospital) != metrics) continue;
+            changedSinceAnalysis.put(metrics.hospital, metrics);
+            changedSincePrediction.put(metrics.hospital, metrics);
+        }
+    }
+    
+    // Re-evaluates only the hospitals whose metrics changed since the last pass
     private static void performOutbreakAnalysis() {
-        System.out.println("\n📊 OUTBREAK ANALYSIS + ML PREDICTIONS:");
+        long analysisStart = System.nanoTime();
+        collectChangedHospitals();
+        eventLog.line(EventLog.Verbosity.SUMMARY, "\n📊 OUTBREAK ANALYSIS + ML PREDICTIONS (" + changedSinceAnalysis.size() +
+                      " of " + hospitalMetrics.size() + " hospitals changed):");
         
-        for (Map.Entry<String, HospitalMetrics> entry : hospitalMetrics.entrySet()) {
+        for (Map.Entry<String, HospitalMetrics> entry : changedSinceAnalysis.entrySet()) {
             String hospital = entry.getKey();
             HospitalMetrics metrics = entry.getValue();
             
             // Traditional outbreak detection
-            if (metrics.caseVelocity >= 2) {
-                System.out.println("⚠️ OUTBREAK ALERT: " + hospital);
-                System.out.println("   📈 Case velocity: " + metrics.caseVelocity + " cases/minute");
-                System.out.println("   🌡️ Avg temperature: " + String.format("%.1f°F", metrics.avgTemperature));
-                System.out.println("   📋 Symptom diversity: " + (int)metrics.symptomDiversity + " patterns");
+            if (metrics.caseVelocity >= OUTBREAK_VELOCITY) {
+                StringBuilder alert = new StringBuilder();
+                alert.append("⚠️ OUTBREAK ALERT: ").append(hospital);
+                alert.append("\n   📈 Case velocity: ").append(metrics.caseVelocity).append(" cases/minute");
+                alert.append("\n   🌡️ Avg temperature: ").append(String.format("%.1f°F", metrics.avgTemperature));
+                alert.append("\n   📋 Symptom diversity: ").append((int) metrics.symptomDiversity).append(" patterns");
+                int leading = leadingSymptom(metrics.symptomPrevalence);
+                alert.append("\n   🤒 Most reported: ").append(SymptomSets.TRACKED[leading])
+                     .append(String.format(" (%.0f%% of cases)", metrics.symptomPrevalence[leading] * 100));
                 
                 // ML Risk Score
                 double riskScore = hospitalRiskScores.getOrDefault(hospital, 0.0);
                 String riskLevel = getRiskLevel(riskScore);
-                System.out.println("   🤖 AI Risk Score: " + String.format("%.1f%%", riskScore) + " (" + riskLevel + ")");
+                alert.append("\n   🤖 AI Risk Score: ").append(String.format("%.1f%%", riskScore)).append(" (").append(riskLevel).append(")");
                 
                 if (riskScore > 75) {
-                    System.out.println("   🚨 HIGH AI-PREDICTED OUTBREAK RISK!");
+                    alert.append("\n   🚨 HIGH AI-PREDICTED OUTBREAK RISK!");
                 } else if (riskScore > 50) {
-                    System.out.println("   ⚠️ MODERATE AI-PREDICTED RISK");
+                    alert.append("\n   ⚠️ MODERATE AI-PREDICTED RISK");
+                }
+                
+                // Latency from the report that started this episode, measured on its first alert only
+                long since = metrics.alertConditionSince;
+                long eventTime = 0;
+                if (since != 0 && since != metrics.alertLatencyRecordedFor) {
+                    metrics.alertLatencyRecordedFor = since;
+                    eventTime = since;
                 }
+                eventLog.alert(PredictorMetrics.Alert.OUTBREAK, hospital, eventTime, alert.toString());
             }
         }
         
-        System.out.println("=" .repeat(70));
+        if (spaceTimeScan != null && !changedSinceAnalysis.isEmpty()) {
+            runSpaceTimeScan();
+        }
+        
+        changedSinceAnalysis.clear();
+        eventLog.line(EventLog.Verbosity.SUMMARY, "=" .repeat(70));
+        METRICS.recordStage(PredictorMetrics.Stage.ANALYSIS, System.nanoTime() - analysisStart);
     }
     
-    private static void updateMLModel() {
+    // Alerts on clusters spanning several hospitals; one-hospital excesses are left to the outbreak alert
+    private static void runSpaceTimeScan() {
+        long scanStart = System.nanoTime();
+        List<SpaceTimeScan.Cluster> clusters = spaceTimeScan.scan(hospitalMetrics.values(), System.currentTimeMillis());
+        long scanNanos = System.nanoTime() - scanStart;
+        METRICS.recordStage(PredictorMetrics.Stage.SCAN, scanNanos);
+        
+        int reported = 0;
+        for (SpaceTimeScan.Cluster cluster : clusters) {
+            List<HospitalMetrics> members = cluster.getHospitals();
+            if (members.size() < 2) continue;
+            reported++;
+            
+            String centre = members.get(0).hospital;
+            StringBuilder alert = new StringBuilder();
+            alert.append("🗺️ SPACE-TIME CLUSTER: ").append(members.size()).append(" hospitals within ")
+                 .append(String.format("%.1f km", cluster.getRadiusKm())).append(" of ").append(centre);
+            long windowSeconds = cluster.getWindowMillis() / 1000;
+            alert.append("\n   📈 ").append(cluster.getObserved()).append(" cases in the last ")
+                 .append(windowSeconds % 60 == 0 ? (windowSeconds / 60) + " min" : windowSeconds + " s")
+                 .append(String.format(", %.1f expected (%.1fx)", cluster.getExpected(), cluster.getRelativeRisk()));
+            alert.append("\n   🏥 ");
+            for (int i = 0; i < Math.min(members.size(), CLUSTER_NAMES_SHOWN); i++) {
+                if (i > 0) alert.append(", ");
+                alert.append(members.get(i).hospital);
+            }
+            if (members.size() > CLUSTER_NAMES_SHOWN) {
+                alert.append(" and ").append(members.size() - CLUSTER_NAMES_SHOWN).append(" more");
+            }
+            
+            // Symptom shares across the cluster, weighted by each hospital's recent cases
+            double[] shares = new double[SymptomSets.TRACKED.length];
+            double weight = 0;
+            for (HospitalMetrics metrics : members) {
+                double cases = metrics.caseVelocity;
+                for (int symptom = 0; symptom < shares.length; symptom++) {
+                    shares[symptom] += metrics.symptomPrevalence[symptom] * cases;
+                }
+                weight += cases;
+            }
+            if (weight > 0) {
+                int leading = leadingSymptom(shares);
+                alert.append("\n   🤒 Most reported: ").append(SymptomSets.TRACKED[leading])
+                     .append(String.format(" (%.0f%% of recent cases)", shares[leading] / weight * 100));
+            }
+            alert.append(String.format("\n   📐 Log-likelihood ratio: %.1f", cluster.getLogLikelihood()));
+            
+            // Latency from the newest report in the cluster
+            eventLog.alert(PredictorMetrics.Alert.REGIONAL_CLUSTER, centre, cluster.getNewestTimestamp(), alert.toString());
+        }
+        eventLog.line(EventLog.Verbosity.SUMMARY, "🗺️ Space-time scan of " + spaceTimeScan.getIndexedHospitals() +
+                      " hospitals: " + reported + " cross-hospital clusters in " + scanNanos / 1000000 + " ms");
+    }
+    
+    private static int leadingSymptom(double[] shares) {
+        int leading = 0;
+        for (int symptom = 1; symptom < shares.length; symptom++) {
+            if (shares[symptom] > shares[leading]) leading = symptom;
+        }
+        return leading;
+    }
+    
+    private static void runPredictionPass() {
+        collectChangedHospitals();
         try {
-            // Create training instances from current hospital data
-            for (Map.Entry<String, HospitalMetrics> entry : hospitalMetrics.entrySet()) {
+            updateMLModel(changedSincePrediction);
+            generateRiskPredictions(changedSincePrediction);
+        } finally {
+            changedSincePrediction.clear();
+        }
+    }
+    
+    private static void updateMLModel(Map<String, HospitalMetrics> changed) {
+        try {
+            // Create training instances from the hospitals whose data changed;
+            // unchanged ones would only repeat their previous example
+            List<Instance> examples = new ArrayList<>();
+            for (Map.Entry<String, HospitalMetrics> entry : changed.entrySet()) {
                 HospitalMetrics metrics = entry.getValue();
                 
-                if (metrics.totalCases >= 3) { // Only use hospitals with enough data
-                    // Create training instance
-                    double[] values = new double[trainingData.numAttributes()];
-                    values[0] = metrics.caseVelocity;
-                    values[1] = metrics.avgTemperature;
-                    values[2] = metrics.symptomDiversity;
-                    values[3] = metrics.severeCaseRatio;
-                    
-                    // Determine class label based on outbreak indicators
-                    String riskClass;
-                    if (metrics.hadRecentOutbreak || metrics.caseVelocity > 4 || metrics.avgTemperature > 102) {
-                        riskClass = "HIGH";
-                    } else if (metrics.caseVelocity > 2 || metrics.avgTemperature > 101) {
-                        riskClass = "MEDIUM";
-                    } else {
-                        riskClass = "LOW";
-                    }
-                    
-                    values[4] = trainingData.attribute(4).indexOfValue(riskClass);
-                    
-                    Instance instance = new DenseInstance(1.0, values);
-                    instance.setDataset(trainingData);
-                    trainingData.add(instance);
+                if (metrics.totalCases >= TRAINING_MIN_CASES) { // Only use hospitals with enough data
+                    examples.add(toTrainingExample(metrics, trainingData));
                 }
             }
             
-            // Train model if we have enough data
-            if (trainingData.numInstances() >= 10 && !modelTrained) {
-                System.out.println("🧠 Training ML model with " + trainingData.numInstances() + " examples...");
-                outbreakModel.buildClassifier(trainingData);
-                modelTrained = true;
-                System.out.println("✅ ML Model trained successfully!");
-                
-                // Show model evaluation
-                Evaluation eval = new Evaluation(trainingData);
-                eval.evaluateModel(outbreakModel, trainingData);
-                System.out.println("📊 Model Accuracy: " + String.format("%.2f%%", eval.pctCorrect()));
-            }
+            // Training happens on the trainer thread once there is enough data
+            modelTrainer.addExamples(examples);
             
         } catch (Exception e) {
             System.err.println("Error updating ML model: " + e.getMessage());
         }
     }
     
-    private static void generateRiskPredictions() {
-        if (!modelTrained) return;
+    // Training instance from a hospital's current features, labelled by the outbreak indicators
+    static Instance toTrainingExample(HospitalMetrics metrics, Instances header) {
+        double[] values = new double[header.numAttributes()];
+        values[0] = metrics.caseVelocity;
+        values[1] = metrics.avgTemperature;
+        values[2] = metrics.symptomDiversity;
+        values[3] = metrics.severeCaseRatio;
+        System.arraycopy(metrics.symptomPrevalence, 0, values, 4, metrics.symptomPrevalence.length);
+        
+        // Determine class label based on outbreak indicators
+        String riskClass;
+        if (metrics.hadRecentOutbreak || metrics.caseVelocity > 4 || metrics.avgTemperature > 102) {
+            riskClass = "HIGH";
+        } else if (metrics.caseVelocity > 2 || metrics.avgTemperature > 101) {
+            riskClass = "MEDIUM";
+        } else {
+            riskClass = "LOW";
+        }
+        
+        values[header.classIndex()] = header.classAttribute().indexOfValue(riskClass);
+        
+        Instance instance = new DenseInstance(1.0, values);
+        instance.setDataset(header);
+        return instance;
+    }
+    
+    private static void generateRiskPredictions(Map<String, HospitalMetrics> changed) {
+        // Read the model once so the whole pass scores against the same version
+        TrainedModel model = modelTrainer.current();
+        if (model == null) return;
+        
+        // A newly trained model changes every hospital's score. Online updates nudge the
+        // weights every pass, so under them only changed hospitals are rescored
+        Map<String, HospitalMetrics> toScore = model.getTrainingVersion() != lastScoredTrainingVersion ? hospitalMetrics : changed;
+        lastScoredTrainingVersion = model.getTrainingVersion();
         
         try {
-            System.out.println("\n🤖 AI OUTBREAK RISK PREDICTIONS:");
+            eventLog.line(EventLog.Verbosity.SUMMARY, "\n🤖 AI OUTBREAK RISK PREDICTIONS (model v" + model.getVersion() +
+                               ", " + model.getTrainingInstances() + " examples, trained in " +
+                               model.getTrainingMillis() + " ms, swapped " +
+                               (System.currentTimeMillis() - model.getSwappedAt()) / 1000 + " s ago):");
             
-            for (Map.Entry<String, HospitalMetrics> entry : hospitalMetrics.entrySet()) {
-                String hospital = entry.getKey();
-                HospitalMetrics metrics = entry.getValue();
-                
-                // Create prediction instance
-                double[] values = new double[trainingData.numAttributes()];
-                values[0] = metrics.caseVelocity;
-                values[1] = metrics.avgTemperature;
-                values[2] = metrics.symptomDiversity;
-                values[3] = metrics.severeCaseRatio;
-                values[4] = 0; // placeholder for class
-                
-                Instance instance = new DenseInstance(1.0, values);
-                instance.setDataset(trainingData);
-                
-                // Get prediction
-                double[] distribution = outbreakModel.distributionForInstance(instance);
-                double highRiskProb = distribution[2] * 100; // HIGH risk probability
+            long scoringStart = System.nanoTime();
+            int rows = scoreHospitals(model, toScore);
+            METRICS.recordStage(PredictorMetrics.Stage.SCORING, System.nanoTime() - scoringStart);
+            
+            for (int i = 0; i < rows; i++) {
+                String hospital = scoringHospitals[i];
+                double highRiskProb = highRiskScores[i] * 100; // HIGH risk probability
                 
                 hospitalRiskScores.put(hospital, highRiskProb);
                 
                 String riskLevel = getRiskLevel(highRiskProb);
-                System.out.println("🏥 " + hospital + ": " + String.format("%.1f%%", highRiskProb) + 
+                if (!eventLog.isEnabled(EventLog.Verbosity.SUMMARY)) continue;
+                eventLog.line(EventLog.Verbosity.SUMMARY, "🏥 " + hospital + ": " + String.format("%.1f%%", highRiskProb) + 
                                  " risk (" + riskLevel + ")");
                 
                 // Feature importance for this hospital
-                System.out.println("   📊 Velocity: " + String.format("%.1f", metrics.caseVelocity) +
-                                 " | Temp: " + String.format("%.1f°F", metrics.avgTemperature) +
-                                 " | Symptoms: " + (int)metrics.symptomDiversity +
-                                 " | Severe: " + String.format("%.0f%%", metrics.severeCaseRatio * 100));
+                eventLog.line(EventLog.Verbosity.SUMMARY, "   📊 Velocity: " + String.format("%.1f", scoringFeatures.get(i, 0)) +
+                                 " | Temp: " + String.format("%.1f°F", scoringFeatures.get(i, 1)) +
+                                 " | Symptoms: " + (int) scoringFeatures.get(i, 2) +
+                                 " | Severe: " + String.format("%.0f%%", scoringFeatures.get(i, 3) * 100));
             }
             
         } catch (Exception e) {
@@ -312,40 +652,59 @@ public class MLOutbreakPredictor {
         }
     }
     
+    /**
+     * Scores every hospital in {@code metricsByHospital} against {@code model},
+     * leaving names in scoringHospitals and HIGH-risk probabilities in
+     * highRiskScores. Returns the number of hospitals scored.
+     */
+    static int scoreHospitals(TrainedModel model, Map<String, HospitalMetrics> metricsByHospital) throws Exception {
+        // Gather every hospital's features into one column-per-feature matrix
+        int rows = 0;
+        int expected = metricsByHospital.size();
+        if (scoringHospitals.length < expected) {
+            scoringHospitals = Arrays.copyOf(scoringHospitals, expected * 2);
+        }
+        scoringFeatures.reset(Math.max(expected, 1));
+        for (Map.Entry<String, HospitalMetrics> entry : metricsByHospital.entrySet()) {
+            if (rows == expected) break; // registered after we sized the matrix; next pass
+            HospitalMetrics metrics = entry.getValue();
+            scoringHospitals[rows] = entry.getKey();
+            scoringFeatures.set(rows, 0, metrics.caseVelocity);
+            scoringFeatures.set(rows, 1, metrics.avgTemperature);
+            scoringFeatures.set(rows, 2, metrics.symptomDiversity);
+            scoringFeatures.set(rows, 3, metrics.severeCaseRatio);
+            for (int symptom = 0; symptom < metrics.symptomPrevalence.length; symptom++) {
+                scoringFeatures.set(rows, 4 + symptom, metrics.symptomPrevalence[symptom]);
+            }
+            rows++;
+        }
+        scoringFeatures.reset(rows);
+        if (highRiskScores.length < rows) {
+            highRiskScores = new double[rows * 2];
+        }
+        
+        // Batch-score on the compiled coefficients; fall back to Weka per instance
+        CompiledModel compiled = model.getCompiled();
+        if (compiled != null) {
+            compiled.scoreClass(scoringFeatures, HIGH_RISK_CLASS, highRiskScores);
+        } else {
+            for (int i = 0; i < rows; i++) {
+                double[] values = new double[model.getHeader().numAttributes()];
+                for (int j = 0; j < FEATURE_COUNT; j++) {
+                    values[j] = scoringFeatures.get(i, j);
+                }
+                Instance instance = new DenseInstance(1.0, values);
+                instance.setDataset(model.getHeader());
+                highRiskScores[i] = model.getClassifier().distributionForInstance(instance)[HIGH_RISK_CLASS];
+            }
+        }
+        return rows;
+    }
+    
     private static String getRiskLevel(double riskScore) {
         if (riskScore > 75) return "HIGH";
         else if (riskScore > 50) return "MEDIUM";
         else if (riskScore > 25) return "LOW-MEDIUM";
         else return "LOW";
     }
-    
-    // Helper method to extract values from JSON-like string
-    private static String extractValue(String json, String key) {
-        try {
-            String pattern = "\"" + key + "\":\"";
-            int start = json.indexOf(pattern);
-            if (start != -1) {
-                start += pattern.length();
-                int end = json.indexOf("\"", start);
-                if (end > start) {
-                    return json.substring(start, end);
-                }
-            }
-            
-            // For numeric values without quotes
-            pattern = "\"" + key + "\":";
-            start = json.indexOf(pattern);
-            if (start != -1) {
-                start += pattern.length();
-                int end = json.indexOf(",", start);
-                if (end == -1) end = json.indexOf("}", start);
-                if (end > start) {
-                    return json.substring(start, end);
-                }
-            }
-        } catch (Exception e) {
-            // Return default
-        }
-        return "0";
-    }
 }
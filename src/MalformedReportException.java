@@ -0,0 +1,10 @@
+/**
+ * Thrown when a patient-report message does not match the expected schema.
+ */
+public class MalformedReportException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public MalformedReportException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,110 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Serves {@link PredictorMetrics} at {@code http://localhost:<port>/metrics}
+ * in the Prometheus text format. Bound to the loopback interface only; the
+ * text is rendered on request, so the endpoint costs nothing between scrapes.
+ */
+public class MetricsServer {
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    // Histogram bucket bounds in seconds
+    private static final double[] STAGE_BUCKETS = {
+        0.000001, 0.000005, 0.00001, 0.00005, 0.0001, 0.0005, 0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1, 5
+    };
+    private static final double[] ALERT_BUCKETS = {
+        0.01, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 120, 300
+    };
+
+    private final HttpServer server;
+
+    private MetricsServer(HttpServer server) {
+        this.server = server;
+    }
+
+    public static MetricsServer start(PredictorMetrics metrics, int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> respond(exchange, render(metrics)));
+        server.start();
+        return new MetricsServer(server);
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    static String render(PredictorMetrics metrics) {
+        StringBuilder out = new StringBuilder(8192);
+
+        header(out, "predictor_records_processed_total", "counter", "Patient reports processed.");
+        out.append("predictor_records_processed_total ").append(metrics.getRecordsProcessed()).append('\n');
+
+        header(out, "predictor_records_malformed_total", "counter", "Records skipped because they could not be decoded.");
+        out.append("predictor_records_malformed_total ").append(metrics.getRecordsMalformed()).append('\n');
+
+        header(out, "predictor_records_per_second", "gauge", "Patient reports processed per second since the previous read.");
+        out.append("predictor_records_per_second ").append(metrics.getRecordsPerSecond()).append('\n');
+
+        header(out, "predictor_consumer_lag", "gauge", "Records not yet consumed, per assigned partition.");
+        for (Map.Entry<Integer, Long> lag : metrics.lagByPartition().entrySet()) {
+            out.append("predictor_consumer_lag{partition=\"").append(lag.getKey()).append("\"} ")
+               .append(lag.getValue()).append('\n');
+        }
+
+        header(out, "predictor_case_store_bytes", "gauge", "Estimated heap held by the case stores.");
+        out.append("predictor_case_store_bytes ").append(metrics.getCaseStoreBytes()).append('\n');
+
+        header(out, "predictor_stage_duration_seconds", "histogram", "Time spent in each processing stage.");
+        for (PredictorMetrics.Stage stage : PredictorMetrics.Stage.values()) {
+            histogram(out, "predictor_stage_duration_seconds", "stage", stage.label(),
+                      metrics.stage(stage), STAGE_BUCKETS, 1e9);
+        }
+
+        header(out, "predictor_event_to_alert_seconds", "histogram", "Time from a patient report's timestamp to the alert it caused.");
+        for (PredictorMetrics.Alert alert : PredictorMetrics.Alert.values()) {
+            histogram(out, "predictor_event_to_alert_seconds", "alert", alert.label(),
+                      metrics.alert(alert), ALERT_BUCKETS, 1e3);
+        }
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    // unitsPerSecond converts bucket bounds into the histogram's recording unit
+    private static void histogram(StringBuilder out, String name, String label, String value,
+                                  LatencyHistogram.Snapshot snapshot, double[] buckets, double unitsPerSecond) {
+        String labels = label + "=\"" + value + "\"";
+        for (double bound : buckets) {
+            out.append(name).append("_bucket{").append(labels).append(",le=\"").append(bound).append("\"} ")
+               .append(snapshot.countAtOrBelow((long) (bound * unitsPerSecond))).append('\n');
+        }
+        out.append(name).append("_bucket{").append(labels).append(",le=\"+Inf\"} ").append(snapshot.getCount()).append('\n');
+        // Sum from bucket bounds, within the histogram's precision
+        out.append(name).append("_sum{").append(labels).append("} ")
+           .append(snapshot.getMean() * snapshot.getCount() / unitsPerSecond).append('\n');
+        out.append(name).append("_count{").append(labels).append("} ").append(snapshot.getCount()).append('\n');
+    }
+}
@@ -0,0 +1,359 @@
+import weka.classifiers.Classifier;
+import weka.classifiers.Evaluation;
+import weka.classifiers.functions.Logistic;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Trains the outbreak model off the consumer and analysis threads.
+ *
+ * Labelled examples go into a fixed-size reservoir sample of everything
+ * seen so far, so memory and the cost of a full training run stay constant
+ * however long the predictor runs. A dedicated thread retrains from a copy
+ * of the reservoir on a fixed schedule, or straight away when the live
+ * model's accuracy on newly labelled examples drops (concept drift). In
+ * {@link Mode#ONLINE} mode the same thread also applies every labelled
+ * window to an {@link OnlineLogistic} model as it arrives.
+ *
+ * Every model is published with a single reference swap, so scoring never
+ * waits on training and never sees a partly built model.
+ */
+public class ModelTrainer {
+    public static final int MIN_TRAINING_INSTANCES = 10;
+
+    public enum Mode {
+        /** Weka Logistic rebuilt from the reservoir on each training run. */
+        BATCH,
+        /** OnlineLogistic updated per labelled window, rebuilt from the reservoir on each training run. */
+        ONLINE;
+
+        public static Mode fromConfig(String value) {
+            return value == null ? BATCH : valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /** The reservoir and current model at one point in time, for checkpoints. */
+    public static final class Snapshot {
+        private final Instances reservoir;
+        private final long examplesSeen;
+        private final TrainedModel model;
+
+        Snapshot(Instances reservoir, long examplesSeen, TrainedModel model) {
+            this.reservoir = reservoir;
+            this.examplesSeen = examplesSeen;
+            this.model = model;
+        }
+
+        public Instances getReservoir() {
+            return reservoir;
+        }
+
+        public long getExamplesSeen() {
+            return examplesSeen;
+        }
+
+        /** The model at the time, or null if none had been trained yet. */
+        public TrainedModel getModel() {
+            return model;
+        }
+    }
+
+    private final Mode mode;
+    private final Instances reservoir; // guarded by itself
+    private final int reservoirSize;
+    private final Random reservoirRandom = new Random();
+    private long examplesSeen = 0;     // guarded by reservoir
+
+    private final long retrainMillis;
+    private final double driftAccuracy;
+    private final int driftWindow;
+    private final PredictorMetrics metrics;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "model-trainer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicReference<TrainedModel> current = new AtomicReference<>();
+    private final AtomicBoolean training = new AtomicBoolean(false);
+
+    // Online mode: the model being updated, only touched on the trainer thread
+    private OnlineLogistic onlineModel;
+
+    // Examples added since the last training run, and the live model's
+    // prequential (predict-then-label) record on them. Guarded by this.
+    private int examplesSinceTraining = 0;
+    private int scoredSinceSwap = 0;
+    private int correctSinceSwap = 0;
+
+    public ModelTrainer(Instances header, Mode mode, int reservoirSize,
+                        long retrainMillis, double driftAccuracy, int driftWindow, PredictorMetrics metrics) {
+        if (reservoirSize < MIN_TRAINING_INSTANCES) {
+            throw new IllegalArgumentException("Reservoir must hold at least " + MIN_TRAINING_INSTANCES + " examples");
+        }
+        this.mode = mode;
+        this.reservoir = new Instances(header, reservoirSize);
+        this.reservoirSize = reservoirSize;
+        this.retrainMillis = retrainMillis;
+        this.driftAccuracy = driftAccuracy;
+        this.driftWindow = driftWindow;
+        this.metrics = metrics;
+    }
+
+    public void start() {
+        executor.scheduleWithFixedDelay(() -> {
+            boolean hasNewExamples;
+            synchronized (this) {
+                hasNewExamples = examplesSinceTraining > 0;
+            }
+            if (hasNewExamples) trainNow("scheduled");
+        }, retrainMillis, retrainMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /** The model currently used for scoring, or null until the first run completes. */
+    public TrainedModel current() {
+        return current.get();
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /** Number of examples currently held in the reservoir. */
+    public int getTrainingSize() {
+        synchronized (reservoir) {
+            return reservoir.numInstances();
+        }
+    }
+
+    /** Number of labelled examples ever offered to the trainer. */
+    public long getExamplesSeen() {
+        synchronized (reservoir) {
+            return examplesSeen;
+        }
+    }
+
+    /** Copies the reservoir and reads the current model. */
+    public Snapshot snapshot() {
+        synchronized (reservoir) {
+            return new Snapshot(new Instances(reservoir), examplesSeen, current.get());
+        }
+    }
+
+    /**
+     * Restores a checkpointed reservoir and model. Call before {@link #start()};
+     * the model is published as is and the next training run builds on it.
+     */
+    public void restore(Snapshot snapshot) {
+        synchronized (reservoir) {
+            reservoir.delete();
+            Instances saved = snapshot.getReservoir();
+            for (int i = 0; i < saved.numInstances() && i < reservoirSize; i++) {
+                reservoir.add(saved.instance(i));
+            }
+            examplesSeen = Math.max(snapshot.getExamplesSeen(), reservoir.numInstances());
+        }
+        TrainedModel model = snapshot.getModel();
+        if (model != null) {
+            // An online model keeps learning from where it stopped; a batch
+            // model restored in online mode is replaced on the next training run
+            if (mode == Mode.ONLINE && model.getClassifier() instanceof OnlineLogistic) {
+                onlineModel = ((OnlineLogistic) model.getClassifier()).copy();
+            }
+            current.set(model);
+        }
+    }
+
+    /**
+     * Adds labelled examples. Must be called from the scoring thread, since
+     * drift is measured by scoring the examples against the live model first.
+     */
+    public void addExamples(List<Instance> examples) {
+        if (examples.isEmpty()) return;
+
+        TrainedModel model = current.get();
+        int correct = 0;
+        if (model != null) {
+            for (Instance example : examples) {
+                try {
+                    double[] distribution = model.getClassifier().distributionForInstance(example);
+                    if (Utils.maxIndex(distribution) == (int) example.classValue()) correct++;
+                } catch (Exception e) {
+                    System.err.println("Error scoring example for drift: " + e.getMessage());
+                }
+            }
+        }
+
+        int total;
+        synchronized (reservoir) {
+            for (Instance example : examples) {
+                sample(example);
+            }
+            total = reservoir.numInstances();
+        }
+
+        boolean drifted = false;
+        synchronized (this) {
+            examplesSinceTraining += examples.size();
+            if (model != null) {
+                scoredSinceSwap += examples.size();
+                correctSinceSwap += correct;
+                drifted = scoredSinceSwap >= driftWindow &&
+                          (double) correctSinceSwap / scoredSinceSwap < driftAccuracy;
+            }
+        }
+
+        if (mode == Mode.ONLINE && model != null) {
+            executor.execute(() -> applyOnlineUpdates(examples));
+        }
+
+        if (model == null && total >= MIN_TRAINING_INSTANCES) {
+            requestRetrain("initial");
+        } else if (drifted) {
+            requestRetrain("drift");
+        }
+    }
+
+    /**
+     * Adds examples to the reservoir only, without drift scoring or starting
+     * a training run; for building a training set offline (see ReportReplay).
+     */
+    public void sampleExamples(List<Instance> examples) {
+        synchronized (reservoir) {
+            for (Instance example : examples) {
+                sample(example);
+            }
+        }
+        synchronized (this) {
+            examplesSinceTraining += examples.size();
+        }
+    }
+
+    /**
+     * Trains on the reservoir on the calling thread and publishes the result.
+     * Returns the new model, or the previous one if there was too little data
+     * or a run was already in progress.
+     */
+    public TrainedModel trainNow(String reason) {
+        if (training.compareAndSet(false, true)) {
+            runTraining(reason);
+        }
+        return current.get();
+    }
+
+    // Reservoir sampling (Algorithm R): after n offers every example has had
+    // the same reservoirSize / n chance of being kept
+    private void sample(Instance example) {
+        examplesSeen++;
+        if (reservoir.numInstances() < reservoirSize) {
+            reservoir.add(example);
+        } else {
+            long slot = (long) (reservoirRandom.nextDouble() * examplesSeen);
+            if (slot < reservoirSize) {
+                reservoir.set((int) slot, example);
+            }
+        }
+    }
+
+    /** Queues a training run unless one is already queued or running. */
+    public void requestRetrain(String reason) {
+        if (training.compareAndSet(false, true)) {
+            executor.execute(() -> runTraining(reason));
+        }
+    }
+
+    private void applyOnlineUpdates(List<Instance> examples) {
+        if (onlineModel == null) return;
+        try {
+            long start = System.nanoTime();
+            for (Instance example : examples) {
+                onlineModel.updateClassifier(example);
+            }
+            long updateNanos = System.nanoTime() - start;
+            long updateMillis = TimeUnit.NANOSECONDS.toMillis(updateNanos);
+            metrics.recordStage(PredictorMetrics.Stage.TRAINING, updateNanos);
+
+            double accuracy;
+            synchronized (this) {
+                accuracy = scoredSinceSwap == 0 ? 0.0 : 100.0 * correctSinceSwap / scoredSinceSwap;
+            }
+            // Publish a copy; the trainer keeps learning on its own instance
+            TrainedModel previous = current.get();
+            OnlineLogistic snapshot = onlineModel.copy();
+            publish(snapshot, CompiledModel.compile(snapshot, previous.getHeader()), previous.getHeader(),
+                    previous.getVersion() + 1, previous.getTrainingVersion(), (int) Math.min(onlineModel.getExamplesSeen(), Integer.MAX_VALUE),
+                    updateMillis, accuracy, false);
+        } catch (Exception e) {
+            System.err.println("Error updating online model: " + e.getMessage());
+        }
+    }
+
+    private void runTraining(String reason) {
+        try {
+            Instances snapshot;
+            synchronized (reservoir) {
+                if (reservoir.numInstances() < MIN_TRAINING_INSTANCES) return;
+                snapshot = new Instances(reservoir);
+            }
+            synchronized (this) {
+                examplesSinceTraining = 0;
+            }
+
+            System.out.println("🧠 Training ML model with " + snapshot.numInstances() + " examples (" + reason + ")...");
+            long start = System.nanoTime();
+            Classifier classifier;
+            if (mode == Mode.ONLINE) {
+                onlineModel = new OnlineLogistic();
+                onlineModel.buildClassifier(snapshot);
+                classifier = onlineModel.copy();
+            } else {
+                classifier = new Logistic();
+                classifier.buildClassifier(snapshot);
+            }
+            long trainingNanos = System.nanoTime() - start;
+            long trainingMillis = TimeUnit.NANOSECONDS.toMillis(trainingNanos);
+            metrics.recordStage(PredictorMetrics.Stage.TRAINING, trainingNanos);
+
+            // Evaluate before publishing; once swapped in the model belongs to the scorer
+            Evaluation eval = new Evaluation(snapshot);
+            eval.evaluateModel(classifier, snapshot);
+
+            TrainedModel previous = current.get();
+            int version = previous == null ? 1 : previous.getVersion() + 1;
+            publish(classifier, CompiledModel.compile(classifier, snapshot), new Instances(snapshot, 0),
+                    version, version, snapshot.numInstances(), trainingMillis, eval.pctCorrect(), true);
+
+            System.out.println("✅ ML Model v" + version + " trained in " + trainingMillis + " ms and swapped in!");
+            System.out.println("📊 Model Accuracy: " + String.format("%.2f%%", eval.pctCorrect()));
+        } catch (Exception e) {
+            System.err.println("Error training ML model: " + e.getMessage());
+        } finally {
+            training.set(false);
+        }
+    }
+
+    private void publish(Classifier classifier, CompiledModel compiled, Instances header, int version, int trainingVersion,
+                         int trainingInstances, long trainingMillis, double accuracy, boolean resetDrift) {
+        current.set(new TrainedModel(classifier, compiled, header, version, trainingVersion, trainingInstances,
+                                     trainingMillis, accuracy, System.currentTimeMillis()));
+        if (resetDrift) {
+            synchronized (this) {
+                scoredSinceSwap = 0;
+                correctSinceSwap = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,220 @@
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.UpdateableClassifier;
+import weka.core.Capabilities;
+import weka.core.Capabilities.Capability;
+import weka.core.Instance;
+import weka.core.Instances;
+import java.util.Random;
+
+/**
+ * Multinomial logistic regression trained by stochastic gradient descent,
+ * one example at a time.
+ *
+ * Features are standardized with running means and variances, and each
+ * weight has its own AdaGrad learning rate, so the model needs no tuning for
+ * the very different scales of case velocity and temperature. Memory and the
+ * cost of an update depend only on the number of attributes and classes,
+ * never on how many examples have been seen.
+ */
+public class OnlineLogistic extends AbstractClassifier implements UpdateableClassifier {
+    private static final long serialVersionUID = 1L;
+
+    private static final double LEARNING_RATE = 0.5;
+    private static final double L2 = 1e-4;
+    private static final double EPSILON = 1e-8;
+    private static final int EPOCHS = 5;
+
+    private int numClasses;
+    private int classIndex;
+    private int numFeatures;
+
+    // weights[k][0] is the bias of class k, weights[k][j + 1] the weight of feature j
+    private double[][] weights;
+    private double[][] squaredGradients;
+
+    // Running feature statistics (Welford)
+    private long seen;
+    private double[] means;
+    private double[] m2;
+
+    private transient double[] scratchFeatures;
+    private transient double[] scratchScores;
+
+    @Override
+    public Capabilities getCapabilities() {
+        Capabilities result = super.getCapabilities();
+        result.disableAll();
+        result.enable(Capability.NUMERIC_ATTRIBUTES);
+        result.enable(Capability.NOMINAL_CLASS);
+        result.enable(Capability.MISSING_CLASS_VALUES);
+        return result;
+    }
+
+    @Override
+    public void buildClassifier(Instances data) throws Exception {
+        getCapabilities().testWithFail(data);
+
+        numClasses = data.numClasses();
+        classIndex = data.classIndex();
+        numFeatures = data.numAttributes() - 1;
+        weights = new double[numClasses][numFeatures + 1];
+        squaredGradients = new double[numClasses][numFeatures + 1];
+        seen = 0;
+        means = new double[numFeatures];
+        m2 = new double[numFeatures];
+
+        // A few shuffled passes; the feature statistics settle during the first
+        int[] order = new int[data.numInstances()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Random random = new Random(1);
+        for (int epoch = 0; epoch < EPOCHS; epoch++) {
+            for (int i = order.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int tmp = order[i];
+                order[i] = order[j];
+                order[j] = tmp;
+            }
+            for (int index : order) {
+                update(data.instance(index), epoch == 0);
+            }
+        }
+    }
+
+    @Override
+    public void updateClassifier(Instance instance) throws Exception {
+        if (weights == null) {
+            throw new IllegalStateException("OnlineLogistic must be built before it can be updated");
+        }
+        update(instance, true);
+    }
+
+    private void update(Instance instance, boolean updateStatistics) {
+        if (instance.classIsMissing()) return;
+
+        if (updateStatistics) {
+            seen++;
+            for (int j = 0; j < numFeatures; j++) {
+                double value = featureValue(instance, j);
+                double delta = value - means[j];
+                means[j] += delta / seen;
+                m2[j] += delta * (value - means[j]);
+            }
+        }
+
+        double[] x = standardize(instance);
+        double[] p = scores(x);
+        int label = (int) instance.classValue();
+        double weight = instance.weight();
+
+        for (int k = 0; k < numClasses; k++) {
+            double error = weight * (p[k] - (k == label ? 1.0 : 0.0));
+            double[] w = weights[k];
+            double[] g2 = squaredGradients[k];
+            for (int j = 0; j <= numFeatures; j++) {
+                double feature = j == 0 ? 1.0 : x[j - 1];
+                double gradient = error * feature + (j == 0 ? 0.0 : L2 * w[j]);
+                g2[j] += gradient * gradient;
+                w[j] -= LEARNING_RATE * gradient / (Math.sqrt(g2[j]) + EPSILON);
+            }
+        }
+    }
+
+    @Override
+    public double[] distributionForInstance(Instance instance) {
+        return scores(standardize(instance)).clone();
+    }
+
+    /** Deep copy, so the trainer can keep learning while a copy is being scored. */
+    public OnlineLogistic copy() {
+        OnlineLogistic copy = new OnlineLogistic();
+        copy.numClasses = numClasses;
+        copy.classIndex = classIndex;
+        copy.numFeatures = numFeatures;
+        copy.weights = deepCopy(weights);
+        copy.squaredGradients = deepCopy(squaredGradients);
+        copy.seen = seen;
+        copy.means = means.clone();
+        copy.m2 = m2.clone();
+        return copy;
+    }
+
+    /**
+     * Folds the feature standardization into the weights and returns them as a
+     * flat row-major {@code numClasses x (1 + numFeatures)} array over raw
+     * feature values, the layout used by {@link CompiledModel}.
+     */
+    public double[] exportCoefficients() {
+        int stride = numFeatures + 1;
+        double[] flat = new double[numClasses * stride];
+        for (int k = 0; k < numClasses; k++) {
+            double bias = weights[k][0];
+            for (int j = 0; j < numFeatures; j++) {
+                double weight = weights[k][j + 1] / scale(j);
+                flat[k * stride + 1 + j] = weight;
+                bias -= weight * means[j];
+            }
+            flat[k * stride] = bias;
+        }
+        return flat;
+    }
+
+    public long getExamplesSeen() {
+        return seen;
+    }
+
+    private double[] standardize(Instance instance) {
+        if (scratchFeatures == null || scratchFeatures.length != numFeatures) {
+            scratchFeatures = new double[numFeatures];
+        }
+        for (int j = 0; j < numFeatures; j++) {
+            scratchFeatures[j] = (featureValue(instance, j) - means[j]) / scale(j);
+        }
+        return scratchFeatures;
+    }
+
+    private double scale(int feature) {
+        double variance = seen > 1 ? m2[feature] / (seen - 1) : 0.0;
+        return variance > 0 ? Math.sqrt(variance) : 1.0;
+    }
+
+    // Softmax class probabilities for standardized features
+    private double[] scores(double[] x) {
+        if (scratchScores == null || scratchScores.length != numClasses) {
+            scratchScores = new double[numClasses];
+        }
+        double max = Double.NEGATIVE_INFINITY;
+        for (int k = 0; k < numClasses; k++) {
+            double[] w = weights[k];
+            double z = w[0];
+            for (int j = 0; j < numFeatures; j++) {
+                z += w[j + 1] * x[j];
+            }
+            scratchScores[k] = z;
+            if (z > max) max = z;
+        }
+        double sum = 0.0;
+        for (int k = 0; k < numClasses; k++) {
+            scratchScores[k] = Math.exp(scratchScores[k] - max);
+            sum += scratchScores[k];
+        }
+        for (int k = 0; k < numClasses; k++) {
+            scratchScores[k] /= sum;
+        }
+        return scratchScores;
+    }
+
+    private double featureValue(Instance instance, int feature) {
+        // Skip over the class attribute, wherever it sits
+        int attribute = feature < classIndex ? feature : feature + 1;
+        double value = instance.value(attribute);
+        return Double.isNaN(value) ? means[feature] : value;
+    }
+
+    private static double[][] deepCopy(double[][] source) {
+        double[][] copy = new double[source.length][];
+        for (int i = 0; i < source.length; i++) {
+            copy[i] = source[i].clone();
+        }
+        return copy;
+    }
+}
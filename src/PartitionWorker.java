@@ -0,0 +1,281 @@
+import org.apache.kafka.clients.consumer.*;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * One consumer thread of the predictor.
+ *
+ * Each worker runs its own KafkaConsumer in the shared group and owns a
+ * {@link HospitalShard} per assigned partition, so ingestion needs no locks
+ * and scales with the number of partitions. Offsets are committed manually
+ * after each processed batch; on rebalance the worker commits what it has
+ * processed for the revoked partitions and gives up their shards before the
+ * new owner starts, so a partition is never ingested by two workers at once.
+ * When the new owner is another worker of this process, it takes the shard
+ * over through a {@link ShardHandoff} and carries on with the same windows
+ * and metrics.
+ *
+ * With {@link Checkpoints} enabled, the worker periodically writes each shard
+ * that has changed together with its next offset, and again when a partition
+ * is revoked or the worker stops. A newly assigned partition with a
+ * checkpoint is restored from it and consumed from the checkpoint's offset,
+ * which reproduces the state it had without relearning the windows. That is
+ * also how a partition moving to another process keeps its state, provided
+ * both processes share the checkpoint directory; otherwise the new owner
+ * starts it empty and its hospitals' windows fill up again over a minute.
+ */
+public class PartitionWorker implements ReportWorker, ConsumerRebalanceListener {
+    private static final int MAX_LOGGED_SKIPS = 10;   // per worker and minute
+    private static final long SKIP_LOG_PERIOD_MS = 60000;
+
+    private final int id;
+    private final String topic;
+    private final Consumer<byte[], byte[]> consumer;
+    private final PatientReportDecoder decoder;
+    private final Map<String, MLOutbreakPredictor.HospitalMetrics> registry;
+    private final PredictorMetrics.WorkerMetrics stats;
+    private final Checkpoints checkpoints; // null when disabled
+    private final ShardHandoff handoff;
+    private final long checkpointMillis;
+
+    private final PatientReport report = new PatientReport();
+    private final Map<Integer, HospitalShard> shards = new HashMap<>();
+    private final Map<TopicPartition, OffsetAndMetadata> processedOffsets = new HashMap<>();
+    private final Map<TopicPartition, Long> checkpointedOffsets = new HashMap<>();
+    private long lastCheckpoint = System.currentTimeMillis();
+    private long skipLogPeriodStart = 0;
+    private int skipsLogged = 0;
+    private int skipsUnlogged = 0;
+    private volatile boolean running = true;
+
+    public PartitionWorker(int id, String topic, Properties consumerProps, ReportFormat format,
+                           Map<String, MLOutbreakPredictor.HospitalMetrics> registry,
+                           PredictorMetrics.WorkerMetrics stats, Checkpoints checkpoints, long checkpointMillis,
+                           ShardHandoff handoff) {
+        this.id = id;
+        this.topic = topic;
+        this.consumer = new KafkaConsumer<>(consumerProps);
+        this.decoder = new PatientReportDecoder(format);
+        this.registry = registry;
+        this.stats = stats;
+        this.checkpoints = checkpoints;
+        this.checkpointMillis = checkpointMillis;
+        this.handoff = handoff;
+    }
+
+    @Override
+    public void run() {
+        try {
+            consumer.subscribe(Collections.singletonList(topic), this);
+            while (running) {
+                long pollStart = System.nanoTime();
+                ConsumerRecords<byte[], byte[]> records = consumer.poll(Duration.ofMillis(1000));
+                stats.recordStage(PredictorMetrics.Stage.POLL, System.nanoTime() - pollStart);
+
+                // Latest processed offset of every owned partition
+                for (TopicPartition partition : records.partitions()) {
+                    HospitalShard shard = shards.get(partition.partition());
+                    long lastOffset = -1;
+                    for (ConsumerRecord<byte[], byte[]> record : records.records(partition)) {
+                        try {
+                            long parseStart = System.nanoTime();
+                            decoder.decode(record.value(), report);
+                            stats.recordStage(PredictorMetrics.Stage.PARSE, System.nanoTime() - parseStart);
+                            MLOutbreakPredictor.processPatientReport(shard, report, stats);
+                        } catch (RuntimeException e) {
+                            // Whatever a record does to the decoder, one bad record must not stop
+                            // the worker, or the partition's next owner would replay it and stop too
+                            skip(record, e);
+                        }
+                        lastOffset = record.offset();
+                    }
+                    processedOffsets.put(partition, new OffsetAndMetadata(lastOffset + 1));
+                }
+
+                // Windows of hospitals that have gone quiet; the poll timeout
+                // bounds how late a due timer fires
+                long now = System.currentTimeMillis();
+                for (HospitalShard shard : shards.values()) {
+                    MLOutbreakPredictor.expireQuietHospitals(shard, now);
+                }
+                handoff.expire(now);
+                
+                // Checkpoint before committing, so the committed offsets never
+                // run ahead of the newest checkpoint by more than one interval
+                if (checkpoints != null && System.currentTimeMillis() - lastCheckpoint >= checkpointMillis) {
+                    checkpoint(processedOffsets.keySet());
+                    lastCheckpoint = System.currentTimeMillis();
+                }
+                
+                if (!records.isEmpty()) {
+                    consumer.commitAsync(new HashMap<>(processedOffsets), null);
+                    stats.recordProcessed(records.count());
+                    long caseStoreBytes = 0;
+                    for (HospitalShard shard : shards.values()) {
+                        caseStoreBytes += shard.getCaseStore().estimatedBytes();
+                    }
+                    stats.recordCaseStoreBytes(caseStoreBytes);
+                }
+                recordLag();
+            }
+        } catch (WakeupException e) {
+            // Shutdown requested
+            if (running) throw e;
+        } catch (Exception e) {
+            System.err.println("Error in predictor worker " + id + ": " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            try {
+                checkpoint(processedOffsets.keySet());
+                if (!processedOffsets.isEmpty()) consumer.commitSync(processedOffsets);
+            } catch (Exception e) {
+                System.err.println("Worker " + id + " could not commit final offsets: " + e.getMessage());
+            }
+            shards.values().forEach(HospitalShard::release);
+            shards.clear();
+            consumer.close();
+        }
+    }
+
+    // Counts a record that could not be processed and logs it, at most MAX_LOGGED_SKIPS a minute
+    private void skip(ConsumerRecord<byte[], byte[]> record, RuntimeException e) {
+        stats.recordMalformed();
+        long now = System.currentTimeMillis();
+        if (now - skipLogPeriodStart >= SKIP_LOG_PERIOD_MS) {
+            if (skipsUnlogged > 0) {
+                System.err.println("Worker " + id + " skipped " + skipsUnlogged + " more unreadable record(s) without logging them");
+            }
+            skipLogPeriodStart = now;
+            skipsLogged = 0;
+            skipsUnlogged = 0;
+        }
+        if (skipsLogged < MAX_LOGGED_SKIPS) {
+            skipsLogged++;
+            String problem = e instanceof MalformedReportException ? e.getMessage() : e.toString();
+            System.err.println("Skipping record " + record.partition() + "@" + record.offset() + ": " + problem);
+        } else {
+            skipsUnlogged++;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        running = false;
+        consumer.wakeup();
+    }
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        // Hand over cleanly: everything processed so far is committed synchronously
+        // before the partition moves, so the new owner resumes right after it
+        checkpoint(partitions);
+        Map<TopicPartition, OffsetAndMetadata> revokedOffsets = new HashMap<>();
+        for (TopicPartition partition : partitions) {
+            OffsetAndMetadata offset = processedOffsets.remove(partition);
+            if (offset != null) revokedOffsets.put(partition, offset);
+        }
+        if (!revokedOffsets.isEmpty()) {
+            consumer.commitSync(revokedOffsets);
+        }
+        // Park the shards for a worker of this process that picks the partitions up
+        for (TopicPartition partition : partitions) {
+            HospitalShard shard = shards.remove(partition.partition());
+            OffsetAndMetadata offset = revokedOffsets.get(partition);
+            if (shard != null && offset != null) {
+                handoff.handOver(shard, offset.offset());
+            } else if (shard != null) {
+                shard.release();
+            }
+        }
+        dropShards(partitions);
+    }
+
+    @Override
+    public void onPartitionsLost(Collection<TopicPartition> partitions) {
+        // Another worker may already own these, so there is nothing safe to commit
+        for (TopicPartition partition : partitions) {
+            processedOffsets.remove(partition);
+        }
+        dropShards(partitions);
+    }
+
+    @Override
+    public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+        for (TopicPartition partition : partitions) {
+            if (takeOver(partition)) continue;
+            HospitalShard shard = new HospitalShard(partition.partition(), registry);
+            shards.put(partition.partition(), shard);
+            restore(partition, shard);
+        }
+        if (!partitions.isEmpty()) {
+            System.out.println("🔀 Worker " + id + " assigned partitions " + shards.keySet());
+        }
+    }
+
+    // Adopts the shard another worker of this process handed over, if it is current
+    private boolean takeOver(TopicPartition partition) {
+        if (!handoff.isPending(partition.partition())) return false;
+        long offset = consumer.position(partition);
+        HospitalShard shard = handoff.takeOver(partition.partition(), offset);
+        if (shard == null) return false;
+        shards.put(partition.partition(), shard);
+        // Committed again on the next revoke, so the shard can move on even if nothing arrives meanwhile
+        processedOffsets.put(partition, new OffsetAndMetadata(offset));
+        System.out.println("🔀 Worker " + id + " took over partition " + partition.partition() + " in memory at offset " + offset);
+        return true;
+    }
+
+    private void dropShards(Collection<TopicPartition> partitions) {
+        for (TopicPartition partition : partitions) {
+            HospitalShard shard = shards.remove(partition.partition());
+            if (shard != null) shard.release();
+            stats.removePartition(partition.partition());
+            checkpointedOffsets.remove(partition);
+        }
+    }
+
+    // Writes every shard among partitions that has processed records since its last checkpoint
+    private void checkpoint(Collection<TopicPartition> partitions) {
+        if (checkpoints == null) return;
+        for (TopicPartition partition : partitions) {
+            OffsetAndMetadata offset = processedOffsets.get(partition);
+            HospitalShard shard = shards.get(partition.partition());
+            if (offset == null || shard == null) continue;
+            Long checkpointed = checkpointedOffsets.get(partition);
+            if (checkpointed != null && checkpointed == offset.offset()) continue;
+            try {
+                checkpoints.writeShard(shard, offset.offset());
+                checkpointedOffsets.put(partition, offset.offset());
+            } catch (Exception e) {
+                System.err.println("Error checkpointing partition " + partition.partition() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Restores a newly assigned shard from its checkpoint and resumes at the checkpoint's offset
+    private void restore(TopicPartition partition, HospitalShard shard) {
+        if (checkpoints == null) return;
+        try {
+            long offset = checkpoints.readShard(shard);
+            if (offset < 0) return;
+            consumer.seek(partition, offset);
+            checkpointedOffsets.put(partition, offset);
+            System.out.println("♻️ Worker " + id + " restored partition " + partition.partition() + " (" +
+                               shard.getCaseStore().size() + " cases) from checkpoint, resuming at offset " + offset);
+        } catch (Exception e) {
+            System.err.println("Error restoring partition " + partition.partition() + ", starting it empty: " + e.getMessage());
+            shard.release();
+            shards.put(partition.partition(), new HospitalShard(partition.partition(), registry));
+        }
+    }
+
+    // From the fetch positions the consumer already tracks; no broker round trip
+    private void recordLag() {
+        for (Integer partition : shards.keySet()) {
+            OptionalLong lag = consumer.currentLag(new TopicPartition(topic, partition));
+            if (lag.isPresent()) stats.recordLag(partition, lag.getAsLong());
+        }
+    }
+}
@@ -0,0 +1,143 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * One decoded patient report.
+ *
+ * Categorical fields are held as {@link CategoryDictionary} codes. Instances
+ * are mutable so the consumer can decode every record into the same object
+ * without allocating; call {@link #copy()} to keep a report beyond that.
+ */
+public class PatientReport {
+    // Codes of the severity levels that count as severe cases
+    private static final int SEVERE = CategoryDictionary.SEVERITIES.intern("severe");
+    private static final int CRITICAL = CategoryDictionary.SEVERITIES.intern("critical");
+
+    int hospital = -1;
+    int symptoms = -1;
+    int severity = -1;
+    double temperature;
+    long timestamp;
+    boolean cluster;
+
+    // Patient id bytes are copied into a reusable buffer and only turned
+    // into a String when someone asks for it
+    private byte[] patientId = new byte[32];
+    private int patientIdLength = 0;
+
+    public PatientReport() {
+    }
+
+    public PatientReport(String patientId, String hospital, String symptoms, String severity,
+                         double temperature, long timestamp, boolean cluster) {
+        setPatientId(patientId);
+        this.hospital = CategoryDictionary.HOSPITALS.intern(hospital);
+        this.symptoms = CategoryDictionary.SYMPTOMS.intern(symptoms);
+        this.severity = CategoryDictionary.SEVERITIES.intern(severity);
+        this.temperature = temperature;
+        this.timestamp = timestamp;
+        this.cluster = cluster;
+    }
+
+    void reset() {
+        hospital = -1;
+        symptoms = -1;
+        severity = -1;
+        temperature = 0.0;
+        timestamp = 0L;
+        cluster = false;
+        patientIdLength = 0;
+    }
+
+    void setPatientId(byte[] source, int offset, int length) {
+        if (length > patientId.length) {
+            patientId = new byte[Math.max(length, patientId.length * 2)];
+        }
+        System.arraycopy(source, offset, patientId, 0, length);
+        patientIdLength = length;
+    }
+
+    void setPatientId(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        setPatientId(bytes, 0, bytes.length);
+    }
+
+    public String getPatientId() {
+        return new String(patientId, 0, patientIdLength, StandardCharsets.UTF_8);
+    }
+
+    public int getHospitalCode() {
+        return hospital;
+    }
+
+    public int getSymptomsCode() {
+        return symptoms;
+    }
+
+    public int getSeverityCode() {
+        return severity;
+    }
+
+    public String getHospital() {
+        return CategoryDictionary.HOSPITALS.valueOf(hospital);
+    }
+
+    public String getSymptoms() {
+        return CategoryDictionary.SYMPTOMS.valueOf(symptoms);
+    }
+
+    public String getSeverity() {
+        return CategoryDictionary.SEVERITIES.valueOf(severity);
+    }
+
+    public double getTemperature() {
+        return temperature;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public boolean isCluster() {
+        return cluster;
+    }
+
+    public boolean isSevere() {
+        return severity == SEVERE || severity == CRITICAL;
+    }
+
+    /** Overwrites this report with {@code other}'s fields, reusing the patient id buffer. */
+    void copyFrom(PatientReport other) {
+        hospital = other.hospital;
+        symptoms = other.symptoms;
+        severity = other.severity;
+        temperature = other.temperature;
+        timestamp = other.timestamp;
+        cluster = other.cluster;
+        setPatientId(other.patientId, 0, other.patientIdLength);
+    }
+
+    public PatientReport copy() {
+        PatientReport copy = new PatientReport();
+        copy.hospital = hospital;
+        copy.symptoms = symptoms;
+        copy.severity = severity;
+        copy.temperature = temperature;
+        copy.timestamp = timestamp;
+        copy.cluster = cluster;
+        copy.patientId = Arrays.copyOf(patientId, Math.max(patientIdLength, 1));
+        copy.patientIdLength = patientIdLength;
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        return "PatientReport{patientId=" + getPatientId() +
+               ", hospital=" + getHospital() +
+               ", symptoms=" + getSymptoms() +
+               ", severity=" + getSeverity() +
+               ", temperature=" + temperature +
+               ", timestamp=" + timestamp +
+               ", cluster=" + cluster + "}";
+    }
+}
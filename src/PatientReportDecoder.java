@@ -0,0 +1,45 @@
+/**
+ * Decodes patient-report records in either wire format.
+ *
+ * In {@link ReportFormat#AUTO} mode the format is chosen per record from its
+ * first byte, which lets JSON and binary producers share the topic during a
+ * rollout. A decoder pinned to one format rejects records in the other.
+ * Not thread-safe; keep one decoder per consuming thread.
+ */
+public class PatientReportDecoder {
+    private final ReportFormat format;
+    private final PatientReportParser jsonParser = new PatientReportParser();
+    private final BinaryReportCodec binaryCodec = new BinaryReportCodec();
+
+    public PatientReportDecoder(ReportFormat format) {
+        this.format = format;
+    }
+
+    public void decode(byte[] data, PatientReport into) {
+        if (data == null) {
+            throw new MalformedReportException("Patient report is null");
+        }
+        decode(data, 0, data.length, into);
+    }
+
+    public void decode(byte[] data, int offset, int length, PatientReport into) {
+        boolean binary = BinaryReportCodec.isBinary(data, offset, length);
+        if (binary && format == ReportFormat.JSON) {
+            throw new MalformedReportException("Binary patient report (first byte " + (data[offset] & 0xFF) +
+                                               ") received but " + ReportFormat.CONFIG + "=json");
+        }
+        if (!binary && format == ReportFormat.BINARY) {
+            throw new MalformedReportException("Non-binary patient report received but " + ReportFormat.CONFIG + "=binary");
+        }
+
+        if (binary) {
+            binaryCodec.decode(data, offset, length, into);
+        } else {
+            jsonParser.parse(data, offset, length, into);
+        }
+    }
+
+    public ReportFormat getFormat() {
+        return format;
+    }
+}
@@ -0,0 +1,35 @@
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+import java.util.Map;
+
+/**
+ * Kafka {@link Deserializer} for patient reports in either wire format,
+ * backed by {@link PatientReportDecoder}. The {@code report.format} config
+ * pins the accepted format; by default each record's format is detected.
+ *
+ * Kafka keeps every value of a poll alive at once, so this returns a new
+ * {@link PatientReport} per record. The predictor's poll loop avoids even
+ * that by reading raw bytes and decoding into one reused report.
+ */
+public class PatientReportDeserializer implements Deserializer<PatientReport> {
+    private PatientReportDecoder decoder = new PatientReportDecoder(ReportFormat.AUTO);
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        decoder = new PatientReportDecoder(ReportFormat.fromConfig(configs.get(ReportFormat.CONFIG), ReportFormat.AUTO));
+    }
+
+    @Override
+    public PatientReport deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        PatientReport report = new PatientReport();
+        try {
+            decoder.decode(data, report);
+        } catch (MalformedReportException e) {
+            throw new SerializationException("Invalid record on topic " + topic + ": " + e.getMessage(), e);
+        }
+        return report;
+    }
+}
@@ -0,0 +1,330 @@
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Single-pass parser for the JSON patient-report schema written by
+ * {@link HealthcareProducer}, working directly on the message bytes.
+ *
+ * Numbers are decoded in place, categorical values are interned through
+ * {@link CategoryDictionary} without building Strings, and the result is
+ * written into a caller-supplied {@link PatientReport}, so parsing a
+ * well-formed record allocates nothing. Anything that does not match the
+ * schema raises {@link MalformedReportException} rather than falling back
+ * to a default value.
+ */
+public class PatientReportParser {
+    private static final byte[] PATIENT_ID = key("patientId");
+    private static final byte[] HOSPITAL = key("hospital");
+    private static final byte[] SYMPTOMS = key("symptoms");
+    private static final byte[] SEVERITY = key("severity");
+    private static final byte[] TEMPERATURE = key("temperature");
+    private static final byte[] TIMESTAMP = key("timestamp");
+    private static final byte[] CLUSTER = key("cluster");
+
+    private static final int SEEN_HOSPITAL = 1;
+    private static final int SEEN_SYMPTOMS = 1 << 1;
+    private static final int SEEN_SEVERITY = 1 << 2;
+    private static final int SEEN_TEMPERATURE = 1 << 3;
+    private static final int SEEN_TIMESTAMP = 1 << 4;
+    private static final int SEEN_REQUIRED = SEEN_HOSPITAL | SEEN_SYMPTOMS | SEEN_SEVERITY |
+                                             SEEN_TEMPERATURE | SEEN_TIMESTAMP;
+
+    // Powers of ten that are exact doubles; dividing an exact mantissa by one
+    // of these is correctly rounded, i.e. identical to Double.parseDouble
+    private static final double[] POWERS_OF_TEN = new double[23];
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    static {
+        POWERS_OF_TEN[0] = 1.0;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10.0;
+        }
+    }
+
+    private byte[] buffer;
+    private int pos;
+    private int end;
+    private int start;
+
+    // Bounds of the last string value read by readString()
+    private int stringStart;
+    private int stringLength;
+
+    public void parse(byte[] data, PatientReport into) {
+        parse(data, 0, data.length, into);
+    }
+
+    public void parse(byte[] data, int offset, int length, PatientReport into) {
+        if (data == null) {
+            throw new MalformedReportException("Patient report is null");
+        }
+        buffer = data;
+        pos = offset;
+        start = offset;
+        end = offset + length;
+        into.reset();
+
+        try {
+            parseObject(into);
+        } finally {
+            buffer = null;
+        }
+    }
+
+    private void parseObject(PatientReport into) {
+        int seen = 0;
+
+        skipWhitespace();
+        expect('{');
+        skipWhitespace();
+        if (peek() == '}') {
+            throw error("report has no fields");
+        }
+
+        while (true) {
+            skipWhitespace();
+            expect('"');
+            int keyStart = pos;
+            while (pos < end && buffer[pos] != '"') {
+                pos++;
+            }
+            int keyLength = pos - keyStart;
+            expect('"');
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+
+            if (matches(keyStart, keyLength, HOSPITAL)) {
+                readString();
+                into.hospital = CategoryDictionary.HOSPITALS.intern(buffer, stringStart, stringLength);
+                seen |= SEEN_HOSPITAL;
+            } else if (matches(keyStart, keyLength, SYMPTOMS)) {
+                readString();
+                into.symptoms = CategoryDictionary.SYMPTOMS.intern(buffer, stringStart, stringLength);
+                seen |= SEEN_SYMPTOMS;
+            } else if (matches(keyStart, keyLength, SEVERITY)) {
+                readString();
+                into.severity = CategoryDictionary.SEVERITIES.intern(buffer, stringStart, stringLength);
+                seen |= SEEN_SEVERITY;
+            } else if (matches(keyStart, keyLength, TEMPERATURE)) {
+                into.temperature = readDouble();
+                seen |= SEEN_TEMPERATURE;
+            } else if (matches(keyStart, keyLength, TIMESTAMP)) {
+                into.timestamp = readLong();
+                seen |= SEEN_TIMESTAMP;
+            } else if (matches(keyStart, keyLength, PATIENT_ID)) {
+                readString();
+                into.setPatientId(buffer, stringStart, stringLength);
+            } else if (matches(keyStart, keyLength, CLUSTER)) {
+                into.cluster = readBoolean();
+            } else {
+                skipValue();
+            }
+
+            skipWhitespace();
+            byte next = next();
+            if (next == '}') break;
+            if (next != ',') {
+                pos--;
+                throw error("expected ',' or '}'");
+            }
+        }
+
+        skipWhitespace();
+        if (pos != end) {
+            throw error("unexpected trailing data");
+        }
+        if ((seen & SEEN_REQUIRED) != SEEN_REQUIRED) {
+            throw new MalformedReportException("Patient report is missing required field '" +
+                                               missingField(seen) + "'");
+        }
+    }
+
+    private void readString() {
+        expect('"');
+        stringStart = pos;
+        while (pos < end) {
+            byte b = buffer[pos];
+            if (b == '"') {
+                stringLength = pos - stringStart;
+                pos++;
+                return;
+            }
+            if (b == '\\') {
+                throw error("escape sequences are not supported in report values");
+            }
+            pos++;
+        }
+        throw error("unterminated string");
+    }
+
+    private long readLong() {
+        boolean negative = false;
+        if (peek() == '-') {
+            negative = true;
+            pos++;
+        }
+        int digitsStart = pos;
+        long value = 0;
+        while (pos < end && isDigit(buffer[pos])) {
+            int digit = buffer[pos] - '0';
+            if (value > (Long.MAX_VALUE - digit) / 10) {
+                throw error("integer overflow");
+            }
+            value = value * 10 + digit;
+            pos++;
+        }
+        if (pos == digitsStart) {
+            throw error("expected a number");
+        }
+        return negative ? -value : value;
+    }
+
+    private double readDouble() {
+        int numberStart = pos;
+        boolean negative = false;
+        if (peek() == '-') {
+            negative = true;
+            pos++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean exact = true;
+
+        while (pos < end && isDigit(buffer[pos])) {
+            if (mantissa < MAX_EXACT_MANTISSA / 10) {
+                mantissa = mantissa * 10 + (buffer[pos] - '0');
+            } else {
+                exact = false;
+            }
+            digits++;
+            pos++;
+        }
+        if (pos < end && buffer[pos] == '.') {
+            pos++;
+            int fractionStart = pos;
+            while (pos < end && isDigit(buffer[pos])) {
+                if (mantissa < MAX_EXACT_MANTISSA / 10) {
+                    mantissa = mantissa * 10 + (buffer[pos] - '0');
+                    fractionDigits++;
+                } else {
+                    exact = false;
+                }
+                pos++;
+            }
+            if (pos == fractionStart) {
+                throw error("expected digits after decimal point");
+            }
+        }
+        if (digits == 0) {
+            throw error("expected a number");
+        }
+        if (pos < end && (buffer[pos] == 'e' || buffer[pos] == 'E')) {
+            pos++;
+            if (pos < end && (buffer[pos] == '+' || buffer[pos] == '-')) pos++;
+            int exponentStart = pos;
+            while (pos < end && isDigit(buffer[pos])) pos++;
+            if (pos == exponentStart) {
+                throw error("expected exponent digits");
+            }
+            exact = false;
+        }
+
+        if (exact && fractionDigits < POWERS_OF_TEN.length) {
+            double value = mantissa / POWERS_OF_TEN[fractionDigits];
+            return negative ? -value : value;
+        }
+        // Rare: more significant digits than fit exactly, or an exponent
+        double value = Double.parseDouble(new String(buffer, numberStart, pos - numberStart, StandardCharsets.US_ASCII));
+        if (Double.isInfinite(value)) {
+            // e.g. 1e400; an infinite temperature would poison every average it reaches
+            pos = numberStart;
+            throw error("number out of range");
+        }
+        return value;
+    }
+
+    private boolean readBoolean() {
+        if (matchesLiteral("true")) return true;
+        if (matchesLiteral("false")) return false;
+        throw error("expected true or false");
+    }
+
+    private void skipValue() {
+        byte b = peek();
+        if (b == '"') {
+            readString();
+        } else if (b == '-' || isDigit(b)) {
+            readDouble();
+        } else if (!matchesLiteral("true") && !matchesLiteral("false") && !matchesLiteral("null")) {
+            throw error("unsupported value");
+        }
+    }
+
+    private boolean matchesLiteral(String literal) {
+        int length = literal.length();
+        if (end - pos < length) return false;
+        for (int i = 0; i < length; i++) {
+            if (buffer[pos + i] != literal.charAt(i)) return false;
+        }
+        pos += length;
+        return true;
+    }
+
+    private boolean matches(int keyStart, int keyLength, byte[] key) {
+        if (keyLength != key.length) return false;
+        for (int i = 0; i < keyLength; i++) {
+            if (buffer[keyStart + i] != key[i]) return false;
+        }
+        return true;
+    }
+
+    private void skipWhitespace() {
+        while (pos < end) {
+            byte b = buffer[pos];
+            if (b != ' ' && b != '\t' && b != '\n' && b != '\r') return;
+            pos++;
+        }
+    }
+
+    private void expect(char c) {
+        if (pos >= end || buffer[pos] != c) {
+            throw error("expected '" + c + "'");
+        }
+        pos++;
+    }
+
+    private byte peek() {
+        if (pos >= end) {
+            throw error("unexpected end of report");
+        }
+        return buffer[pos];
+    }
+
+    private byte next() {
+        byte b = peek();
+        pos++;
+        return b;
+    }
+
+    private MalformedReportException error(String problem) {
+        return new MalformedReportException("Malformed patient report at byte " + (pos - start) + ": " + problem);
+    }
+
+    private static String missingField(int seen) {
+        if ((seen & SEEN_HOSPITAL) == 0) return "hospital";
+        if ((seen & SEEN_SYMPTOMS) == 0) return "symptoms";
+        if ((seen & SEEN_SEVERITY) == 0) return "severity";
+        if ((seen & SEEN_TEMPERATURE) == 0) return "temperature";
+        return "timestamp";
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static byte[] key(String name) {
+        return name.getBytes(StandardCharsets.US_ASCII);
+    }
+}
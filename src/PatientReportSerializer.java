@@ -0,0 +1,135 @@
+import org.apache.kafka.common.serialization.Serializer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Kafka {@link Serializer} for patient reports in either wire format,
+ * chosen by the {@code report.format} config (json by default).
+ *
+ * JSON output is byte-for-byte the schema the producer has always sent.
+ * Not thread-safe: the output buffers are reused across records, and
+ * KafkaProducer serializes on whichever thread calls send, so a producer
+ * using this serializer must only be sent to from one thread. Each
+ * {@link ReportSender} of a {@link KafkaTransport} has its own producer for
+ * this reason.
+ */
+public class PatientReportSerializer implements Serializer<PatientReport> {
+    private static final byte[] PATIENT_ID = field("{\"patientId\":\"");
+    private static final byte[] HOSPITAL = field("\",\"hospital\":\"");
+    private static final byte[] SYMPTOMS = field("\",\"symptoms\":\"");
+    private static final byte[] SEVERITY = field("\",\"severity\":\"");
+    private static final byte[] TEMPERATURE = field("\",\"temperature\":");
+    private static final byte[] TIMESTAMP = field(",\"timestamp\":");
+    private static final byte[] CLUSTER = field(",\"cluster\":true");
+
+    private ReportFormat format;
+    private final BinaryReportCodec binaryCodec = new BinaryReportCodec();
+    private byte[] out = new byte[256];
+    private int length;
+
+    public PatientReportSerializer() {
+        this(ReportFormat.JSON);
+    }
+
+    public PatientReportSerializer(ReportFormat format) {
+        setFormat(format);
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        setFormat(ReportFormat.fromConfig(configs.get(ReportFormat.CONFIG), format));
+    }
+
+    private void setFormat(ReportFormat format) {
+        if (format == ReportFormat.AUTO) {
+            throw new IllegalArgumentException(ReportFormat.CONFIG + "=auto is only valid for readers");
+        }
+        this.format = format;
+    }
+
+    @Override
+    public byte[] serialize(String topic, PatientReport report) {
+        if (report == null) {
+            return null;
+        }
+        return format == ReportFormat.BINARY ? binaryCodec.encode(report) : encodeJson(report);
+    }
+
+    public ReportFormat getFormat() {
+        return format;
+    }
+
+    private byte[] encodeJson(PatientReport report) {
+        length = 0;
+        write(PATIENT_ID);
+        write(report.getPatientId());
+        write(HOSPITAL);
+        write(report.getHospital());
+        write(SYMPTOMS);
+        write(report.getSymptoms());
+        write(SEVERITY);
+        write(report.getSeverity());
+        write(TEMPERATURE);
+        // One decimal place, as the old "%.1f" format but locale-independent
+        long tenths = Math.round(report.getTemperature() * 10.0);
+        if (tenths < 0) {
+            writeByte('-');
+            tenths = -tenths;
+        }
+        writeLong(tenths / 10);
+        writeByte('.');
+        writeByte('0' + (int) (tenths % 10));
+        write(TIMESTAMP);
+        writeLong(report.getTimestamp());
+        if (report.isCluster()) {
+            write(CLUSTER);
+        }
+        writeByte('}');
+        return Arrays.copyOf(out, length);
+    }
+
+    private void write(String value) {
+        write(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void write(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, out, length, bytes.length);
+        length += bytes.length;
+    }
+
+    private void writeLong(long value) {
+        if (value < 0) {
+            writeByte('-');
+            value = -value;
+        }
+        ensureCapacity(20);
+        int digitsStart = length;
+        do {
+            out[length++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        // Digits were written least significant first
+        for (int i = digitsStart, j = length - 1; i < j; i++, j--) {
+            byte tmp = out[i];
+            out[i] = out[j];
+            out[j] = tmp;
+        }
+    }
+
+    private void writeByte(int b) {
+        ensureCapacity(1);
+        out[length++] = (byte) b;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > out.length) {
+            out = Arrays.copyOf(out, Math.max(out.length * 2, length + extra));
+        }
+    }
+
+    private static byte[] field(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,239 @@
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Instrumentation for the predictor: how long each processing stage takes,
+ * how long after a patient report its alert fires, throughput, consumer lag
+ * and case store size.
+ *
+ * Per-record stages are recorded by each worker into its own
+ * {@link WorkerMetrics}, so the hot path only touches histograms no other
+ * thread writes; readers merge them when the metrics are exported. Stage
+ * durations are kept in nanoseconds and alert latencies in milliseconds.
+ */
+public class PredictorMetrics implements PredictorMetricsMXBean {
+    public static final String OBJECT_NAME = "healthcare.outbreak:type=PredictorMetrics";
+
+    public enum Stage {
+        POLL, PARSE, UPDATE, ANALYSIS, SCAN, TRAINING, SCORING;
+
+        /** True for stages recorded per worker rather than by a single shared thread. */
+        boolean perWorker() {
+            return this == POLL || this == PARSE || this == UPDATE;
+        }
+
+        public String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    public enum Alert {
+        CRITICAL_FEVER, CLUSTER, OUTBREAK, REGIONAL_CLUSTER;
+
+        public String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /** Metrics written by one worker thread only. */
+    public static final class WorkerMetrics {
+        private final LatencyHistogram[] stages = new LatencyHistogram[Stage.values().length];
+        private final Map<Integer, Long> lagByPartition = new ConcurrentHashMap<>();
+        private volatile long recordsProcessed = 0; // single writer
+        private volatile long recordsMalformed = 0; // single writer
+        private volatile long caseStoreBytes = 0;
+
+        private WorkerMetrics() {
+            for (Stage stage : Stage.values()) {
+                if (stage.perWorker()) stages[stage.ordinal()] = new LatencyHistogram();
+            }
+        }
+
+        public void recordStage(Stage stage, long nanos) {
+            stages[stage.ordinal()].record(nanos);
+        }
+
+        public void recordProcessed(int records) {
+            recordsProcessed += records;
+        }
+
+        /** A record that could not be decoded and was skipped. */
+        public void recordMalformed() {
+            recordsMalformed++;
+        }
+
+        public void recordLag(int partition, long lag) {
+            lagByPartition.put(partition, lag);
+        }
+
+        public void removePartition(int partition) {
+            lagByPartition.remove(partition);
+        }
+
+        public void recordCaseStoreBytes(long bytes) {
+            caseStoreBytes = bytes;
+        }
+    }
+
+    private final List<WorkerMetrics> workers = new CopyOnWriteArrayList<>();
+    private final LatencyHistogram[] sharedStages = new LatencyHistogram[Stage.values().length];
+    private final LatencyHistogram[] alertLatency = new LatencyHistogram[Alert.values().length];
+
+    // Throughput between reads; guarded by this
+    private long rateSampleTime = System.nanoTime();
+    private long rateSampleRecords = 0;
+    private double recordsPerSecond = 0.0;
+
+    public PredictorMetrics() {
+        for (Stage stage : Stage.values()) {
+            if (!stage.perWorker()) sharedStages[stage.ordinal()] = new LatencyHistogram();
+        }
+        for (Alert alert : Alert.values()) {
+            alertLatency[alert.ordinal()] = new LatencyHistogram();
+        }
+    }
+
+    /** Registers the JMX view; metrics keep working if that fails. */
+    public void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (Exception e) {
+            System.err.println("Error registering metrics MBean: " + e.getMessage());
+        }
+    }
+
+    public WorkerMetrics newWorker() {
+        WorkerMetrics worker = new WorkerMetrics();
+        workers.add(worker);
+        return worker;
+    }
+
+    /** Records a stage run by a single thread (analysis, training or scoring). */
+    public void recordStage(Stage stage, long nanos) {
+        if (stage.perWorker()) {
+            throw new IllegalArgumentException(stage + " is recorded through WorkerMetrics");
+        }
+        sharedStages[stage.ordinal()].record(nanos);
+    }
+
+    /** Records that an alert fired {@code latencyMillis} after the report that caused it. */
+    public void recordAlert(Alert alert, long latencyMillis) {
+        alertLatency[alert.ordinal()].record(latencyMillis);
+    }
+
+    public LatencyHistogram.Snapshot stage(Stage stage) {
+        if (!stage.perWorker()) {
+            return sharedStages[stage.ordinal()].snapshot();
+        }
+        LatencyHistogram.Snapshot merged = new LatencyHistogram().snapshot();
+        for (WorkerMetrics worker : workers) {
+            merged = merged.merge(worker.stages[stage.ordinal()].snapshot());
+        }
+        return merged;
+    }
+
+    public LatencyHistogram.Snapshot alert(Alert alert) {
+        return alertLatency[alert.ordinal()].snapshot();
+    }
+
+    /** Lag of every partition currently assigned to a worker. */
+    public Map<Integer, Long> lagByPartition() {
+        Map<Integer, Long> lag = new TreeMap<>();
+        for (WorkerMetrics worker : workers) {
+            lag.putAll(worker.lagByPartition);
+        }
+        return lag;
+    }
+
+    @Override
+    public long getRecordsProcessed() {
+        long total = 0;
+        for (WorkerMetrics worker : workers) {
+            total += worker.recordsProcessed;
+        }
+        return total;
+    }
+
+    @Override
+    public long getRecordsMalformed() {
+        long total = 0;
+        for (WorkerMetrics worker : workers) {
+            total += worker.recordsMalformed;
+        }
+        return total;
+    }
+
+    @Override
+    public synchronized double getRecordsPerSecond() {
+        long now = System.nanoTime();
+        long elapsed = now - rateSampleTime;
+        // Reads closer together than a second keep the previous rate
+        if (elapsed >= TimeUnit.SECONDS.toNanos(1)) {
+            long records = getRecordsProcessed();
+            recordsPerSecond = (records - rateSampleRecords) * 1e9 / elapsed;
+            rateSampleRecords = records;
+            rateSampleTime = now;
+        }
+        return recordsPerSecond;
+    }
+
+    @Override
+    public long getConsumerLag() {
+        long total = 0;
+        for (long lag : lagByPartition().values()) {
+            total += lag;
+        }
+        return total;
+    }
+
+    @Override
+    public long getCaseStoreBytes() {
+        long total = 0;
+        for (WorkerMetrics worker : workers) {
+            total += worker.caseStoreBytes;
+        }
+        return total;
+    }
+
+    @Override
+    public long getAlertsFired() {
+        long total = 0;
+        for (LatencyHistogram histogram : alertLatency) {
+            total += histogram.snapshot().getCount();
+        }
+        return total;
+    }
+
+    @Override
+    public Map<String, Double> getEventToAlertMillis() {
+        Map<String, Double> values = new TreeMap<>();
+        for (Alert alert : Alert.values()) {
+            summarize(values, alert.label(), alert(alert), 1.0);
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, Double> getStageMicros() {
+        Map<String, Double> values = new TreeMap<>();
+        for (Stage stage : Stage.values()) {
+            summarize(values, stage.label(), stage(stage), 1e-3);
+        }
+        return values;
+    }
+
+    private static void summarize(Map<String, Double> into, String prefix, LatencyHistogram.Snapshot snapshot, double scale) {
+        into.put(prefix + ".count", (double) snapshot.getCount());
+        into.put(prefix + ".mean", snapshot.getMean() * scale);
+        into.put(prefix + ".p50", snapshot.getValueAtPercentile(50) * scale);
+        into.put(prefix + ".p99", snapshot.getValueAtPercentile(99) * scale);
+        into.put(prefix + ".max", snapshot.getMax() * scale);
+    }
+}
@@ -0,0 +1,28 @@
+import java.util.Map;
+
+/**
+ * JMX view of {@link PredictorMetrics}, registered as
+ * {@code healthcare.outbreak:type=PredictorMetrics}.
+ */
+public interface PredictorMetricsMXBean {
+    long getRecordsProcessed();
+
+    /** Records skipped because they could not be decoded. */
+    long getRecordsMalformed();
+
+    /** Average rate since the previous read of this attribute (or of the HTTP endpoint). */
+    double getRecordsPerSecond();
+
+    /** Records not yet consumed, summed over all assigned partitions. */
+    long getConsumerLag();
+
+    long getCaseStoreBytes();
+
+    long getAlertsFired();
+
+    /** Event-to-alert latency in milliseconds by alert type, e.g. {@code outbreak.p99}. */
+    Map<String, Double> getEventToAlertMillis();
+
+    /** Stage durations in microseconds by stage, e.g. {@code parse.mean} or {@code scoring.p99}. */
+    Map<String, Double> getStageMicros();
+}
@@ -0,0 +1,34 @@
+/**
+ * Categorical values known to both the producer and the predictor.
+ *
+ * The binary report format sends these as their index in the lists below
+ * instead of as text, so entries may only ever be appended: reordering or
+ * removing one changes the meaning of records already on the topic.
+ * Values outside the catalog are still accepted and sent inline.
+ */
+public final class ReportCatalog {
+    // Hospital locations for outbreak simulation
+    public static final String[] HOSPITALS = {
+        "Central General Hospital",
+        "St. Mary's Medical Center",
+        "Downtown Emergency Clinic",
+        "North Side Hospital",
+        "Regional Medical Center"
+    };
+
+    // Respiratory symptoms for pattern detection
+    public static final String[] SYMPTOMS = {
+        "fever,cough,fatigue",
+        "fever,shortness_of_breath,chest_pain",
+        "cough,sore_throat,headache",
+        "fever,cough,shortness_of_breath",
+        "fatigue,body_aches,fever",
+        "dry_cough,fever,loss_of_taste",
+        "severe_cough,high_fever,breathing_difficulty"
+    };
+
+    public static final String[] SEVERITY_LEVELS = {"mild", "moderate", "severe", "critical"};
+
+    private ReportCatalog() {
+    }
+}
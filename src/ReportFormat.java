@@ -0,0 +1,29 @@
+import java.util.Locale;
+
+/**
+ * Wire formats for records on the patient-reports topic.
+ *
+ * Both formats can share the topic: JSON records always start with '{' and
+ * binary records start with their version byte, so a reader can tell them
+ * apart from the first byte alone.
+ */
+public enum ReportFormat {
+    JSON,
+    BINARY,
+    /** Reader-only: accept whichever format each record is in. */
+    AUTO;
+
+    /** Config key used by the serializer, deserializer and both applications. */
+    public static final String CONFIG = "report.format";
+
+    public static ReportFormat fromConfig(Object value, ReportFormat defaultFormat) {
+        if (value == null || value.toString().isEmpty()) {
+            return defaultFormat;
+        }
+        try {
+            return valueOf(value.toString().trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown " + CONFIG + " '" + value + "', expected json, binary or auto");
+        }
+    }
+}
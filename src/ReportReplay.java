@@ -0,0 +1,525 @@
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.converters.ArffSaver;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Offline replay of archived patient reports, for training on history.
+ *
+ * Reads files of newline-delimited JSON reports (the topic's JSON format,
+ * one report per line, e.g. a console-consumer export) through memory-mapped
+ * regions and runs them through the same window and metrics code as the live
+ * predictor. Each report's own timestamp is the clock, so nothing sleeps or
+ * polls. Hospitals are split into partitions; each region is parsed in
+ * parallel slices, then every partition sorts its records into event-time
+ * order and replays them on a fork/join pool.
+ *
+ * The sort only covers one region at a time, so a partition's clock never
+ * runs backwards: a record older than the last one its partition has already
+ * replayed (because a later region reaches back before an earlier one) is
+ * skipped and counted as out of order rather than merged in. Archives
+ * exported from the topic are close to time order and lose at most a few
+ * records at region boundaries; concatenated or shuffled archives should be
+ * sorted first.
+ *
+ * Every 15 s of event time a partition turns the hospitals that changed into
+ * labelled examples, as the live prediction pass does. The examples are
+ * reservoir-sampled, a model is trained on the sample, and both are written
+ * as the model checkpoint the live predictor restores on startup.
+ */
+public class ReportReplay {
+
+    /** Replay settings, read from a properties file and/or {@code --key=value} arguments. */
+    static final class Config {
+        final List<Path> files = new ArrayList<>();
+        int partitions = Runtime.getRuntime().availableProcessors();
+        String output = System.getProperty("checkpoint.dir", "checkpoints");
+        String topic = "patient-reports";
+        String arff = null;              // training set as ARFF, none by default
+        long regionBytes = 64L << 20;    // bytes mapped and parsed at a time
+        int reservoirSize = Integer.getInteger("model.reservoir.size", 5000);
+        ModelTrainer.Mode mode = ModelTrainer.Mode.fromConfig(System.getProperty("model.mode"));
+
+        /**
+         * Parses {@code --config=file} (applied first), {@code --key=value}
+         * overrides, and the archive files; a directory stands for the files
+         * in it, in name order.
+         */
+        static Config parse(String[] args) throws IOException {
+            Properties settings = new Properties();
+            for (String arg : args) {
+                if (arg.startsWith("--config=")) {
+                    try (InputStream in = new FileInputStream(arg.substring("--config=".length()))) {
+                        settings.load(in);
+                    }
+                }
+            }
+            Config config = new Config();
+            for (String arg : args) {
+                if (arg.equals("--replay") || arg.startsWith("--config=")) continue;
+                if (!arg.startsWith("--")) {
+                    config.addInput(Paths.get(arg));
+                    continue;
+                }
+                int eq = arg.indexOf('=');
+                if (eq < 0) {
+                    throw new IllegalArgumentException("Expected --key=value, got " + arg);
+                }
+                settings.setProperty(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+
+            for (String key : settings.stringPropertyNames()) {
+                config.set(key, settings.getProperty(key).trim());
+            }
+            config.validate();
+            return config;
+        }
+
+        private void addInput(Path path) throws IOException {
+            if (!Files.isDirectory(path)) {
+                files.add(path);
+                return;
+            }
+            try (Stream<Path> entries = Files.list(path)) {
+                files.addAll(entries.filter(Files::isRegularFile).sorted().collect(Collectors.toList()));
+            }
+        }
+
+        private void set(String key, String value) {
+            switch (key) {
+                case "partitions": partitions = Integer.parseInt(value); break;
+                case "out": output = value; break;
+                case "topic": topic = value; break;
+                case "arff": arff = value.isEmpty() ? null : value; break;
+                case "region.mb": regionBytes = Long.parseLong(value) << 20; break;
+                case "reservoir.size": reservoirSize = Integer.parseInt(value); break;
+                case "model.mode": mode = ModelTrainer.Mode.fromConfig(value); break;
+                default:
+                    throw new IllegalArgumentException("Unknown replay setting: " + key);
+            }
+        }
+
+        private void validate() {
+            if (files.isEmpty()) throw new IllegalArgumentException("No archive files given");
+            if (partitions <= 0) throw new IllegalArgumentException("partitions must be positive");
+            if (regionBytes <= 0 || regionBytes > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("region.mb must be between 1 and 2047");
+            }
+        }
+    }
+
+    private static final int MAX_REPORTED_ERRORS = 10;
+
+    private final Config config;
+    private final Instances header = MLOutbreakPredictor.createDatasetHeader();
+    private final Map<String, MLOutbreakPredictor.HospitalMetrics> registry = new ConcurrentHashMap<>();
+    private final PartitionReplay[] partitions;
+    private final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    private final ModelTrainer trainer;
+
+    private final LongAdder records = new LongAdder();
+    private final LongAdder malformed = new LongAdder();
+    private long parseNanos = 0;
+    private long replayNanos = 0;
+    private long examples = 0;
+
+    ReportReplay(Config config) {
+        this.config = config;
+        this.partitions = new PartitionReplay[config.partitions];
+        for (int p = 0; p < partitions.length; p++) {
+            partitions[p] = new PartitionReplay(p);
+        }
+        // Never started: the reservoir is filled and trained on this thread
+        this.trainer = new ModelTrainer(header, config.mode, config.reservoirSize,
+                                        Long.MAX_VALUE, 0.0, Integer.MAX_VALUE, new PredictorMetrics());
+    }
+
+    /** Exits with status 1 if the replay fails, so backfill scripts can tell. */
+    public static void main(String[] args) {
+        try {
+            new ReportReplay(Config.parse(args)).run();
+        } catch (Exception e) {
+            System.err.println("Error replaying reports: " + e);
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    void run() throws Exception {
+        System.out.println("📼 Replaying " + config.files.size() + " archive file(s) across " + partitions.length +
+                           " partitions on " + pool.getParallelism() + " threads");
+        long start = System.nanoTime();
+        try {
+            for (Path file : config.files) {
+                replayFile(file, start);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        // The last, partial interval of every partition
+        for (PartitionReplay partition : partitions) {
+            partition.emitExamples();
+        }
+        sampleExamples();
+        long elapsed = System.nanoTime() - start;
+
+        TrainedModel model = trainer.trainNow("replay");
+        Checkpoints checkpoints = Checkpoints.fromConfig(config.output, config.topic);
+        if (checkpoints != null) {
+            checkpoints.writeModel(trainer.snapshot());
+        }
+        if (config.arff != null) {
+            ArffSaver saver = new ArffSaver();
+            saver.setInstances(trainer.snapshot().getReservoir());
+            saver.setFile(new File(config.arff));
+            saver.writeBatch();
+        }
+        printSummary(elapsed, model, checkpoints);
+    }
+
+    private void replayFile(Path file, long start) throws Exception {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                int length = (int) Math.min(config.regionBytes, size - position);
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                // Whole lines only; the rest of the last one starts the next region
+                if (position + length < size) {
+                    length = lastLineEnd(region, length);
+                    if (length == 0) {
+                        throw new IOException("Line longer than " + (config.regionBytes >> 20) + " MB in " + file +
+                                              " at byte " + position);
+                    }
+                }
+                replayRegion(region, length);
+                position += length;
+
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.println(String.format("📼 %s: %.0f of %.0f MB, %d records, %.0f records/s",
+                    file.getFileName(), position / 1048576.0, size / 1048576.0, records.sum(), records.sum() / seconds));
+            }
+        }
+    }
+
+    private void replayRegion(ByteBuffer region, int length) throws Exception {
+        // Parse one slice per thread, each split at a line boundary
+        long parseStart = System.nanoTime();
+        int slices = pool.getParallelism();
+        int[] bounds = new int[slices + 1];
+        bounds[slices] = length;
+        for (int i = 1; i < slices; i++) {
+            int bound = Math.max(bounds[i - 1], (int) ((long) length * i / slices));
+            while (bound > 0 && bound < length && region.get(bound - 1) != '\n') bound++;
+            bounds[i] = bound;
+        }
+        List<Callable<Batch[]>> parseTasks = new ArrayList<>();
+        for (int i = 0; i < slices; i++) {
+            int from = bounds[i];
+            int to = bounds[i + 1];
+            parseTasks.add(() -> parseSlice(region, from, to));
+        }
+        List<Batch[]> parsed = new ArrayList<>();
+        for (Future<Batch[]> result : pool.invokeAll(parseTasks)) {
+            parsed.add(result.get());
+        }
+        parseNanos += System.nanoTime() - parseStart;
+
+        // Replay every partition's records in event-time order, partitions in parallel
+        long replayStart = System.nanoTime();
+        List<Callable<Void>> replayTasks = new ArrayList<>();
+        for (PartitionReplay partition : partitions) {
+            List<Batch> batches = new ArrayList<>();
+            for (Batch[] slice : parsed) {
+                if (slice[partition.index] != null) batches.add(slice[partition.index]);
+            }
+            if (batches.isEmpty()) continue;
+            replayTasks.add(() -> {
+                partition.replay(Batch.concat(batches));
+                return null;
+            });
+        }
+        for (Future<Void> result : pool.invokeAll(replayTasks)) {
+            result.get();
+        }
+        sampleExamples();
+        replayNanos += System.nanoTime() - replayStart;
+    }
+
+    private Batch[] parseSlice(ByteBuffer region, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        ByteBuffer view = region.duplicate();
+        view.position(from);
+        view.get(bytes);
+
+        PatientReportParser parser = new PatientReportParser();
+        PatientReport report = new PatientReport();
+        Batch[] batches = new Batch[partitions.length];
+        int lineStart = 0;
+        for (int i = 0; i <= bytes.length; i++) {
+            if (i < bytes.length && bytes[i] != '\n') continue;
+            int lineEnd = i > lineStart && bytes[i - 1] == '\r' ? i - 1 : i;
+            if (lineEnd > lineStart) {
+                try {
+                    parser.parse(bytes, lineStart, lineEnd - lineStart, report);
+                    int partition = report.getHospitalCode() % batches.length;
+                    if (batches[partition] == null) batches[partition] = new Batch();
+                    batches[partition].add(report);
+                    records.increment();
+                } catch (MalformedReportException e) {
+                    malformed.increment();
+                    if (malformed.sum() <= MAX_REPORTED_ERRORS) {
+                        System.err.println("Skipping malformed report: " + e.getMessage());
+                    }
+                }
+            }
+            lineStart = i + 1;
+        }
+        return batches;
+    }
+
+    // Feeds the examples of the last region into the reservoir, in partition order
+    private void sampleExamples() {
+        for (PartitionReplay partition : partitions) {
+            if (partition.examples.isEmpty()) continue;
+            trainer.sampleExamples(partition.examples);
+            examples += partition.examples.size();
+            partition.examples.clear();
+        }
+    }
+
+    private void printSummary(long elapsedNanos, TrainedModel model, Checkpoints checkpoints) {
+        long criticalFevers = 0;
+        long clusterReports = 0;
+        long outbreakEpisodes = 0;
+        long outOfOrder = 0;
+        for (PartitionReplay partition : partitions) {
+            outOfOrder += partition.outOfOrder;
+            criticalFevers += partition.criticalFevers;
+            clusterReports += partition.clusterReports;
+            outbreakEpisodes += partition.outbreakEpisodes;
+        }
+        double seconds = elapsedNanos / 1e9;
+        System.out.println("=".repeat(70));
+        System.out.println(String.format("🏁 Replayed %d records (%d malformed) from %d hospitals in %.1f s: %.0f records/s",
+            records.sum(), malformed.sum(), registry.size(), seconds, records.sum() / seconds));
+        if (outOfOrder > 0) {
+            System.out.println("   ⚠️ " + outOfOrder + " records skipped as out of order: older than records of their " +
+                               "partition in an earlier region (regions are sorted one at a time)");
+        }
+        System.out.println(String.format("   ⏱️ parse %.1f s, replay %.1f s", parseNanos / 1e9, replayNanos / 1e9));
+        System.out.println("   🚨 " + outbreakEpisodes + " outbreak episodes (" + MLOutbreakPredictor.OUTBREAK_VELOCITY +
+                           "+ cases/minute), " + criticalFevers + " critical fevers, " + clusterReports + " cluster reports");
+        System.out.println("   🧠 " + examples + " training examples, " + trainer.getTrainingSize() + " kept in the reservoir");
+        if (model != null) {
+            System.out.println(String.format("   ✅ Model v%d, training accuracy %.2f%%", model.getVersion(), model.getTrainingAccuracy()));
+        } else {
+            System.out.println("   ⚠️ Too few examples to train a model (need " + ModelTrainer.MIN_TRAINING_INSTANCES + ")");
+        }
+        if (checkpoints != null) {
+            System.out.println("   💾 Model checkpoint written to " + checkpoints.getDirectory() +
+                               "; the predictor starts from it on its next run");
+        }
+        if (config.arff != null) {
+            System.out.println("   💾 Training set written to " + config.arff);
+        }
+    }
+
+    // Offset of the end of the last complete line in the first length bytes, 0 if none
+    private static int lastLineEnd(ByteBuffer region, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (region.get(i) == '\n') return i + 1;
+        }
+        return 0;
+    }
+
+    /** Replay state of one partition, only touched by one task at a time. */
+    private final class PartitionReplay {
+        final int index;
+        final List<Instance> examples = new ArrayList<>();
+        final PatientReport report = new PatientReport();
+        final BitSet changed = new BitSet(); // hospital codes changed in the current interval
+        final TimerWheel.Handler onExpired = (hospital, deadline) -> changed.set(hospital);
+        HospitalShard shard;
+        long intervalEnd;
+        long lastTime = Long.MIN_VALUE; // event time of the latest record replayed
+
+        long outOfOrder = 0;
+
+        long criticalFevers = 0;
+        long clusterReports = 0;
+        long outbreakEpisodes = 0;
+
+        PartitionReplay(int index) {
+            this.index = index;
+        }
+
+        void replay(Batch batch) {
+            int[] order = batch.timeOrder();
+            for (int i : order) {
+                long time = batch.timestamps[i];
+                // Older than an earlier region's records; replaying it would turn the clock back
+                if (time < lastTime) {
+                    outOfOrder++;
+                    continue;
+                }
+                lastTime = time;
+                if (shard == null) {
+                    shard = new HospitalShard(index, registry, time);
+                    intervalEnd = Math.floorDiv(time, MLOutbreakPredictor.PREDICTION_INTERVAL_MS) *
+                                  MLOutbreakPredictor.PREDICTION_INTERVAL_MS + MLOutbreakPredictor.PREDICTION_INTERVAL_MS;
+                }
+                // Prediction passes that would have run before this report
+                while (time >= intervalEnd) {
+                    MLOutbreakPredictor.expireQuietHospitals(shard, intervalEnd, onExpired);
+                    emitExamples();
+                    intervalEnd += MLOutbreakPredictor.PREDICTION_INTERVAL_MS;
+                }
+
+                batch.load(i, report);
+                CaseStore cases = shard.getCaseStore();
+                cases.add(time, report.hospital, report.symptoms, report.severity, report.temperature);
+                cases.evict(time);
+                MLOutbreakPredictor.HospitalMetrics metrics = shard.metrics(report.hospital);
+                boolean wasAlerting = metrics.alertConditionSince != 0;
+                MLOutbreakPredictor.updateHospitalMetrics(shard, report, time);
+                MLOutbreakPredictor.expireQuietHospitals(shard, time, onExpired);
+                changed.set(report.hospital);
+
+                if (!wasAlerting && metrics.alertConditionSince != 0) outbreakEpisodes++;
+                if (report.temperature > MLOutbreakPredictor.CRITICAL_FEVER_F) criticalFevers++;
+                if (report.cluster) clusterReports++;
+            }
+        }
+
+        // Same rule as the live prediction pass: changed hospitals with enough cases
+        void emitExamples() {
+            if (shard == null) return;
+            for (int hospital = changed.nextSetBit(0); hospital >= 0; hospital = changed.nextSetBit(hospital + 1)) {
+                MLOutbreakPredictor.HospitalMetrics metrics = shard.metrics(hospital);
+                if (metrics.totalCases >= MLOutbreakPredictor.TRAINING_MIN_CASES) {
+                    examples.add(MLOutbreakPredictor.toTrainingExample(metrics, header));
+                }
+            }
+            changed.clear();
+        }
+    }
+
+    /** Columns of parsed reports for one partition. */
+    private static final class Batch {
+        long[] timestamps = new long[256];
+        int[] hospitals = new int[256];
+        int[] symptoms = new int[256];
+        int[] severities = new int[256];
+        double[] temperatures = new double[256];
+        boolean[] clusters = new boolean[256];
+        int size = 0;
+
+        void add(PatientReport report) {
+            if (size == timestamps.length) grow(size * 2);
+            timestamps[size] = report.timestamp;
+            hospitals[size] = report.hospital;
+            symptoms[size] = report.symptoms;
+            severities[size] = report.severity;
+            temperatures[size] = report.temperature;
+            clusters[size] = report.cluster;
+            size++;
+        }
+
+        void load(int i, PatientReport into) {
+            into.timestamp = timestamps[i];
+            into.hospital = hospitals[i];
+            into.symptoms = symptoms[i];
+            into.severity = severities[i];
+            into.temperature = temperatures[i];
+            into.cluster = clusters[i];
+        }
+
+        private void grow(int capacity) {
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            hospitals = Arrays.copyOf(hospitals, capacity);
+            symptoms = Arrays.copyOf(symptoms, capacity);
+            severities = Arrays.copyOf(severities, capacity);
+            temperatures = Arrays.copyOf(temperatures, capacity);
+            clusters = Arrays.copyOf(clusters, capacity);
+        }
+
+        static Batch concat(List<Batch> batches) {
+            if (batches.size() == 1) return batches.get(0);
+            Batch all = new Batch();
+            int total = 0;
+            for (Batch batch : batches) total += batch.size;
+            all.grow(total);
+            for (Batch batch : batches) {
+                System.arraycopy(batch.timestamps, 0, all.timestamps, all.size, batch.size);
+                System.arraycopy(batch.hospitals, 0, all.hospitals, all.size, batch.size);
+                System.arraycopy(batch.symptoms, 0, all.symptoms, all.size, batch.size);
+                System.arraycopy(batch.severities, 0, all.severities, all.size, batch.size);
+                System.arraycopy(batch.temperatures, 0, all.temperatures, all.size, batch.size);
+                System.arraycopy(batch.clusters, 0, all.clusters, all.size, batch.size);
+                all.size += batch.size;
+            }
+            return all;
+        }
+
+        /** Indices in event-time order, ties in file order. */
+        int[] timeOrder() {
+            int[] order = new int[size];
+            boolean sorted = true;
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+                if (i > 0 && timestamps[i] < timestamps[i - 1]) sorted = false;
+                min = Math.min(min, timestamps[i]);
+                max = Math.max(max, timestamps[i]);
+            }
+            // Archives are usually in order already
+            if (sorted) return order;
+
+            // Sort (time offset, index) pairs packed into one long each
+            int indexBits = 32 - Integer.numberOfLeadingZeros(size);
+            if (max - min < (1L << (63 - indexBits))) {
+                long[] keys = new long[size];
+                for (int i = 0; i < size; i++) {
+                    keys[i] = (timestamps[i] - min) << indexBits | i;
+                }
+                Arrays.sort(keys);
+                long mask = (1L << indexBits) - 1;
+                for (int i = 0; i < size; i++) {
+                    order[i] = (int) (keys[i] & mask);
+                }
+                return order;
+            }
+            Integer[] boxed = new Integer[size];
+            for (int i = 0; i < size; i++) boxed[i] = i;
+            Arrays.sort(boxed, (a, b) -> Long.compare(timestamps[a], timestamps[b]));
+            for (int i = 0; i < size; i++) order[i] = boxed[i];
+            return order;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded lock-free ring of patient reports with many producers and one
+ * consumer, the in-process stand-in for a topic partition.
+ *
+ * Slots hold preallocated reports: a producer claims a slot with one CAS
+ * (bounded queue after Vyukov, as in {@link EventLog}) and copies its
+ * report's fields in, and the consumer handles reports in batches straight
+ * out of their slots, so a handoff allocates nothing and costs well under a
+ * microsecond. A full ring pushes back: producers wait, spinning and then
+ * parking, until the consumer frees a slot, and each wait is counted as a
+ * stall.
+ */
+public class ReportRing {
+    /** Handles one report; the report is only valid during the call. */
+    public interface Handler {
+        void accept(PatientReport report);
+    }
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 200;
+    private static final long PARK_NANOS = 50000;
+
+    // One ring slot; the report is written by the claiming producer before
+    // the sequence is published and read by the consumer after it sees it
+    private static final class Slot {
+        volatile long sequence;
+        final PatientReport report = new PatientReport();
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong(); // next sequence to claim
+    private volatile long head = 0;                   // next sequence to consume; written by the consumer only
+    private final LongAdder stalls = new LongAdder();
+    private volatile boolean closed = false;
+
+    /** A ring of {@code capacity} reports, rounded up to a power of two. */
+    public ReportRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        slots = new Slot[size];
+        mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+            slots[i].sequence = i;
+        }
+    }
+
+    /**
+     * Copies {@code report} into the ring, waiting while it is full. Returns
+     * false, without adding it, once the ring is closed.
+     */
+    public boolean put(PatientReport report) {
+        long position = tail.get();
+        int attempt = 0;
+        while (true) {
+            if (closed) return false;
+            Slot slot = slots[(int) position & mask];
+            long difference = slot.sequence - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slot.report.copyFrom(report);
+                    slot.sequence = position + 1;
+                    return true;
+                }
+            } else if (difference < 0) {
+                // Full: the slot still holds a report from the previous lap
+                if (attempt == 0) stalls.increment();
+                idle(attempt);
+                attempt = nextAttempt(attempt);
+            }
+            position = tail.get();
+        }
+    }
+
+    /**
+     * Hands up to {@code max} reports to {@code handler}, oldest first, and
+     * frees their slots. Returns how many were handled. Consumer thread only.
+     */
+    public int drain(Handler handler, int max) {
+        long position = head;
+        int drained = 0;
+        try {
+            while (drained < max) {
+                Slot slot = slots[(int) position & mask];
+                if (slot.sequence != position + 1) break;
+                try {
+                    handler.accept(slot.report);
+                } finally {
+                    // Hand the slot back to producers for the next lap
+                    slot.sequence = position + slots.length;
+                    position++;
+                    drained++;
+                }
+            }
+        } finally {
+            head = position;
+        }
+        return drained;
+    }
+
+    /** Reports waiting to be consumed, including ones still being copied in. */
+    public long size() {
+        return Math.max(0, tail.get() - head);
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    /** Times a producer found the ring full and had to wait. */
+    public long getStalls() {
+        return stalls.sum();
+    }
+
+    /** Stops accepting reports; what is already in the ring can still be drained. */
+    public void close() {
+        closed = true;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Backs off after {@code attempt} failed tries (counted with
+     * {@link #nextAttempt}): spin, then yield, then park briefly, so a short
+     * wait stays in the microseconds and a long one does not burn a core.
+     */
+    static void idle(int attempt) {
+        if (attempt < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else if (attempt < YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+
+    // Saturates once waits are parking, so a long wait cannot overflow the count
+    static int nextAttempt(int attempt) {
+        return Math.min(attempt + 1, YIELD_TRIES);
+    }
+}
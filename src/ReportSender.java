@@ -0,0 +1,24 @@
+/**
+ * Sending side of a {@link ReportTransport}. Senders are not thread-safe;
+ * give each generating thread its own.
+ */
+public interface ReportSender extends AutoCloseable {
+    /** Told whether the transport accepted a report; {@code error} is null on success. */
+    interface Callback {
+        void onCompletion(Exception error);
+    }
+
+    /**
+     * Sends {@code report}, keyed by {@code hospital} so each hospital's
+     * reports stay in order. The report may be reused as soon as this returns.
+     * {@code callback}, if not null, is called once the report is accepted or
+     * has failed, possibly on another thread.
+     */
+    void send(String hospital, PatientReport report, Callback callback);
+
+    /** Waits until every report sent so far has been accepted or has failed. */
+    void flush();
+
+    @Override
+    void close();
+}
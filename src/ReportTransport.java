@@ -0,0 +1,37 @@
+import java.util.List;
+import java.util.Map;
+
+/**
+ * How reports get from the data generator to the predictor: through Kafka
+ * ({@link KafkaTransport}), or through in-process rings when both run in one
+ * JVM ({@link InProcessTransport}). The predictor only sees the workers a
+ * transport creates, which hand every report to
+ * {@link MLOutbreakPredictor#processPatientReport} on the shard that owns its
+ * hospital, so detection and prediction work the same on either.
+ */
+public interface ReportTransport extends AutoCloseable {
+    /** A sender for one generating thread. */
+    ReportSender newSender();
+
+    /**
+     * Up to {@code count} ingest workers that together consume every
+     * partition, each owning the shards of its partitions.
+     *
+     * @param checkpoints shard checkpoints, or null; only used by transports that can resume from an offset
+     */
+    List<ReportWorker> newWorkers(int count, Map<String, MLOutbreakPredictor.HospitalMetrics> registry,
+                                  PredictorMetrics metrics, Checkpoints checkpoints, long checkpointMillis);
+
+    /**
+     * Prefix of the checkpoint files written for reports from this transport,
+     * so runs on different sources never overwrite each other's model.
+     */
+    String checkpointName();
+
+    /** One line for startup banners. */
+    String describe();
+
+    @Override
+    default void close() {
+    }
+}
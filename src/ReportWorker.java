@@ -0,0 +1,5 @@
+/** An ingest thread of the predictor, feeding reports from a {@link ReportTransport} to its shards. */
+public interface ReportWorker extends Runnable {
+    /** Asks the worker to stop; safe to call from any thread. */
+    void shutdown();
+}
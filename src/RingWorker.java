@@ -0,0 +1,104 @@
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One ingest thread of the predictor on an {@link InProcessTransport}; the
+ * counterpart of {@link PartitionWorker} without Kafka.
+ *
+ * The worker owns a {@link HospitalShard} per ring it drains and hands each
+ * report to the predictor straight out of its ring slot, in batches. When
+ * every ring is empty it spins briefly, then yields, then parks, so a report
+ * arriving after a short pause is picked up within microseconds.
+ *
+ * Nobody else drains its rings, so when the worker stops, for whatever
+ * reason, it closes them: senders waiting on a full ring give up instead of
+ * waiting forever.
+ */
+public class RingWorker implements ReportWorker {
+    private static final int MAX_BATCH = 512;
+    private static final long HOUSEKEEPING_MS = 100;
+
+    private final int id;
+    private final ReportRing[] rings;
+    private final HospitalShard[] shards;
+    private final ReportRing.Handler[] handlers;
+    private final PredictorMetrics.WorkerMetrics stats;
+    private volatile boolean running = true;
+
+    public RingWorker(int id, InProcessTransport transport, List<Integer> partitions,
+                      Map<String, MLOutbreakPredictor.HospitalMetrics> registry, PredictorMetrics.WorkerMetrics stats) {
+        this.id = id;
+        this.rings = new ReportRing[partitions.size()];
+        this.shards = new HospitalShard[partitions.size()];
+        this.handlers = new ReportRing.Handler[partitions.size()];
+        this.stats = stats;
+        for (int i = 0; i < rings.length; i++) {
+            HospitalShard shard = new HospitalShard(partitions.get(i), registry);
+            rings[i] = transport.ring(partitions.get(i));
+            shards[i] = shard;
+            handlers[i] = report -> MLOutbreakPredictor.processPatientReport(shard, report, stats);
+        }
+    }
+
+    @Override
+    public void run() {
+        System.out.println("🔀 Worker " + id + " draining in-process partitions " + partitionList());
+        long lastHousekeeping = 0;
+        int idleRounds = 0;
+        try {
+            while (running) {
+                int drained = 0;
+                for (int i = 0; i < rings.length; i++) {
+                    int count = rings[i].drain(handlers[i], MAX_BATCH);
+                    if (count > 0) stats.recordProcessed(count);
+                    drained += count;
+                }
+
+                // Window expiry, queue depth and memory, a few times a second
+                long now = System.currentTimeMillis();
+                if (now - lastHousekeeping >= HOUSEKEEPING_MS) {
+                    long caseStoreBytes = 0;
+                    for (int i = 0; i < rings.length; i++) {
+                        MLOutbreakPredictor.expireQuietHospitals(shards[i], now);
+                        stats.recordLag(shards[i].getPartition(), rings[i].size());
+                        caseStoreBytes += shards[i].getCaseStore().estimatedBytes();
+                    }
+                    stats.recordCaseStoreBytes(caseStoreBytes);
+                    lastHousekeeping = now;
+                }
+
+                if (drained > 0) {
+                    idleRounds = 0;
+                } else {
+                    ReportRing.idle(idleRounds);
+                    idleRounds = ReportRing.nextAttempt(idleRounds);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Error in predictor worker " + id + ": " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            for (ReportRing ring : rings) {
+                ring.close();
+            }
+            for (HospitalShard shard : shards) {
+                shard.release();
+                stats.removePartition(shard.getPartition());
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        running = false;
+    }
+
+    private String partitionList() {
+        StringBuilder list = new StringBuilder("[");
+        for (int i = 0; i < shards.length; i++) {
+            if (i > 0) list.append(", ");
+            list.append(shards[i].getPartition());
+        }
+        return list.append(']').toString();
+    }
+}
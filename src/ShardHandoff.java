@@ -0,0 +1,67 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shards of revoked partitions waiting for their next owner in the same
+ * process, so a rebalance between {@link PartitionWorker}s moves the windows
+ * and metrics along with the partition instead of starting them empty.
+ *
+ * A shard is only taken over when the new owner resumes at exactly the
+ * offset the old owner committed; anything else means records were consumed
+ * elsewhere in between. Shards nobody claims within one window length (the
+ * partition moved to another process) are released, since by then their
+ * windows would have expired anyway.
+ */
+public class ShardHandoff {
+    private static final class Entry {
+        final HospitalShard shard;
+        final long offset;
+        final long handedOver;
+
+        Entry(HospitalShard shard, long offset, long handedOver) {
+            this.shard = shard;
+            this.offset = offset;
+            this.handedOver = handedOver;
+        }
+    }
+
+    private final long timeoutMillis;
+    private final Map<Integer, Entry> pending = new ConcurrentHashMap<>();
+
+    public ShardHandoff(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /** Parks the shard of a revoked partition whose records up to {@code offset} are committed. */
+    public void handOver(HospitalShard shard, long offset) {
+        Entry previous = pending.put(shard.getPartition(), new Entry(shard, offset, System.currentTimeMillis()));
+        if (previous != null) previous.shard.release();
+    }
+
+    public boolean isPending(int partition) {
+        return pending.containsKey(partition);
+    }
+
+    /**
+     * The parked shard of {@code partition} if it is up to date at
+     * {@code position}, otherwise null; a stale shard is released.
+     */
+    public HospitalShard takeOver(int partition, long position) {
+        Entry entry = pending.remove(partition);
+        if (entry == null) return null;
+        if (entry.offset != position) {
+            entry.shard.release();
+            return null;
+        }
+        return entry.shard;
+    }
+
+    /** Releases shards that have waited longer than the timeout. */
+    public void expire(long now) {
+        for (Entry entry : pending.values()) {
+            if (now - entry.handedOver > timeoutMillis && pending.remove(entry.shard.getPartition(), entry)) {
+                entry.shard.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,414 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Prospective space-time scan across hospitals, to find case clusters that
+ * span neighbouring facilities, which no single hospital's case velocity
+ * reveals.
+ *
+ * Each hospital counts its cases per time bucket ({@link CaseCounts}). The
+ * scan looks at cylinders: a circle around every hospital, grown one nearest
+ * neighbour at a time up to {@code maxHospitals} or {@code radiusKm}, over the
+ * last 1 to {@code windowBuckets} buckets. Expected counts follow Kulldorff's
+ * space-time permutation model: the circle's cases over the whole baseline
+ * times all hospitals' cases in the window, over all cases. It needs no
+ * population data, and busy hospitals or a busy hour on their own are not
+ * mistaken for a cluster. Cylinders are ranked by Poisson log-likelihood
+ * ratio, and the best one per hospital is reported if it clears
+ * {@code minCases} and {@code minLogLikelihood} and shares no hospital with a
+ * stronger cluster.
+ *
+ * Neighbour lists come from a grid index with cells of {@code radiusKm} and
+ * are only recomputed when the set of hospitals changes. The circles are scanned on the
+ * common fork/join pool, each grown incrementally, so a scan costs about
+ * hospitals x maxHospitals x windowBuckets additions.
+ *
+ * Clusters are judged by a fixed likelihood ratio rather than Monte Carlo
+ * replication, which would multiply the cost by the number of replicas, so
+ * the ratio is a ranking, not a p-value.
+ *
+ * Not thread-safe: a scan is run by one thread at a time.
+ */
+public class SpaceTimeScan {
+    public static final long BUCKET_MS = Long.getLong("scan.bucket.ms", 60000L);
+    public static final int BASELINE_BUCKETS = Integer.getInteger("scan.baseline.buckets", 60);
+
+    private static final int CENTRES_PER_TASK = 64;
+
+    /**
+     * Cases of one hospital per bucket over the last BASELINE_BUCKETS
+     * buckets. Written by the hospital's owning worker only; each slot packs
+     * its bucket number with its count, so the scan never pairs a count with
+     * the wrong bucket.
+     */
+    public static final class CaseCounts {
+        private static final int COUNT_BITS = 20;
+        private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+        private final AtomicLongArray slots = new AtomicLongArray(BASELINE_BUCKETS);
+        private volatile long newestTimestamp = 0;
+
+        public void record(long timestamp) {
+            long bucket = Math.floorDiv(timestamp, BUCKET_MS);
+            int slot = (int) Math.floorMod(bucket, (long) BASELINE_BUCKETS);
+            long packed = slots.get(slot);
+            long slotBucket = packed >>> COUNT_BITS;
+            if (slotBucket == bucket) {
+                if ((packed & COUNT_MASK) < COUNT_MASK) slots.lazySet(slot, packed + 1);
+            } else if (slotBucket < bucket) {
+                slots.lazySet(slot, bucket << COUNT_BITS | 1);
+            }
+            // Older than the baseline: nothing to count it in
+            if (timestamp > newestTimestamp) newestTimestamp = timestamp;
+        }
+
+        public int count(long bucket) {
+            long packed = slots.get((int) Math.floorMod(bucket, (long) BASELINE_BUCKETS));
+            return (packed >>> COUNT_BITS) == bucket ? (int) (packed & COUNT_MASK) : 0;
+        }
+
+        public long getNewestTimestamp() {
+            return newestTimestamp;
+        }
+    }
+
+    /** A cylinder with more cases than expected. */
+    public static final class Cluster {
+        private final List<MLOutbreakPredictor.HospitalMetrics> hospitals;
+        private final int observed;
+        private final double expected;
+        private final double logLikelihood;
+        private final long windowMillis;
+        private final double radiusKm;
+
+        Cluster(List<MLOutbreakPredictor.HospitalMetrics> hospitals, int observed, double expected,
+                double logLikelihood, long windowMillis, double radiusKm) {
+            this.hospitals = hospitals;
+            this.observed = observed;
+            this.expected = expected;
+            this.logLikelihood = logLikelihood;
+            this.windowMillis = windowMillis;
+            this.radiusKm = radiusKm;
+        }
+
+        /** The hospitals in the circle, centre first, then by distance. */
+        public List<MLOutbreakPredictor.HospitalMetrics> getHospitals() {
+            return hospitals;
+        }
+
+        public int getObserved() {
+            return observed;
+        }
+
+        public double getExpected() {
+            return expected;
+        }
+
+        public double getRelativeRisk() {
+            return observed / expected;
+        }
+
+        public double getLogLikelihood() {
+            return logLikelihood;
+        }
+
+        public long getWindowMillis() {
+            return windowMillis;
+        }
+
+        public double getRadiusKm() {
+            return radiusKm;
+        }
+
+        /** Timestamp of the newest case reported by any hospital in the cluster. */
+        public long getNewestTimestamp() {
+            long newest = 0;
+            for (MLOutbreakPredictor.HospitalMetrics metrics : hospitals) {
+                newest = Math.max(newest, metrics.recentCases.getNewestTimestamp());
+            }
+            return newest;
+        }
+    }
+
+    private final HospitalLocations locations;
+    private final double radiusKm;
+    private final int maxHospitals;
+    private final int windowBuckets;
+    private final int minCases;
+    private final double minLogLikelihood;
+
+    // Hospitals with their positions and neighbour lists, by index
+    private final List<MLOutbreakPredictor.HospitalMetrics> indexed = new ArrayList<>();
+    private final Set<MLOutbreakPredictor.HospitalMetrics> indexedSet = new HashSet<>();
+    private double[][] positions = new double[0][];
+    private int[][] neighbours = new int[0][];
+
+    public SpaceTimeScan(HospitalLocations locations, double radiusKm, int maxHospitals, int windowBuckets,
+                         int minCases, double minLogLikelihood) {
+        if (radiusKm <= 0 || maxHospitals <= 0 || minLogLikelihood <= 0) {
+            throw new IllegalArgumentException("Scan radius, cluster size and likelihood threshold must be positive");
+        }
+        if (windowBuckets <= 0 || windowBuckets >= BASELINE_BUCKETS) {
+            throw new IllegalArgumentException("Scan window must be between 1 and " + (BASELINE_BUCKETS - 1) + " buckets");
+        }
+        this.locations = locations;
+        this.radiusKm = radiusKm;
+        this.maxHospitals = maxHospitals;
+        this.windowBuckets = windowBuckets;
+        this.minCases = minCases;
+        this.minLogLikelihood = minLogLikelihood;
+    }
+
+    /**
+     * Scans the baseline ending with the bucket of {@code now}. Returns the
+     * clusters found, strongest first, none sharing a hospital.
+     */
+    public List<Cluster> scan(Collection<MLOutbreakPredictor.HospitalMetrics> hospitals, long now) {
+        if (hospitals.size() != indexed.size() || !indexedSet.containsAll(hospitals)) {
+            reindex(hospitals);
+        }
+        int n = indexed.size();
+        if (n < 2) return new ArrayList<>();
+
+        // Snapshot the counts: per hospital its baseline total and its cases in the last 1..windowBuckets buckets
+        long currentBucket = Math.floorDiv(now, BUCKET_MS);
+        int[] totals = new int[n];
+        int[][] recent = new int[n][windowBuckets + 1];
+        long[] allRecent = new long[windowBuckets + 1];
+        long all = 0;
+        for (int h = 0; h < n; h++) {
+            CaseCounts counts = indexed.get(h).recentCases;
+            int total = 0;
+            for (int b = 0; b < BASELINE_BUCKETS; b++) {
+                int count = counts.count(currentBucket - b);
+                total += count;
+                if (b < windowBuckets) recent[h][b + 1] = recent[h][b] + count;
+            }
+            totals[h] = total;
+            all += total;
+            for (int w = 1; w <= windowBuckets; w++) {
+                allRecent[w] += recent[h][w];
+            }
+        }
+        if (all < minCases) return new ArrayList<>();
+
+        // Best cylinder around every hospital, in parallel
+        double[] bestRatio = new double[n];
+        int[] bestSize = new int[n];
+        int[] bestWindow = new int[n];
+        ForkJoinPool.commonPool().invoke(
+            new CentreTask(0, n, totals, recent, allRecent, all, bestRatio, bestSize, bestWindow));
+
+        // Report the strongest cylinders that do not overlap a stronger one
+        Integer[] order = new Integer[n];
+        for (int h = 0; h < n; h++) order[h] = h;
+        Arrays.sort(order, (a, b) -> Double.compare(bestRatio[b], bestRatio[a]));
+        boolean[] claimed = new boolean[n];
+        List<Cluster> clusters = new ArrayList<>();
+        for (int centre : order) {
+            if (bestRatio[centre] < minLogLikelihood) break;
+            int[] members = Arrays.copyOf(neighbours[centre], bestSize[centre]);
+            boolean overlaps = false;
+            for (int member : members) overlaps |= claimed[member];
+            if (overlaps) continue;
+
+            List<MLOutbreakPredictor.HospitalMetrics> clusterHospitals = new ArrayList<>();
+            int observed = 0;
+            long baseline = 0;
+            for (int member : members) {
+                claimed[member] = true;
+                clusterHospitals.add(indexed.get(member));
+                observed += recent[member][bestWindow[centre]];
+                baseline += totals[member];
+            }
+            double expected = (double) baseline * allRecent[bestWindow[centre]] / all;
+            int farthest = members[members.length - 1];
+            clusters.add(new Cluster(clusterHospitals, observed, expected, bestRatio[centre],
+                                     bestWindow[centre] * BUCKET_MS, distance(centre, farthest)));
+        }
+        return clusters;
+    }
+
+    public int getIndexedHospitals() {
+        return indexed.size();
+    }
+
+    // Hospitals joined or moved between partitions; every neighbour list is recomputed
+    private void reindex(Collection<MLOutbreakPredictor.HospitalMetrics> hospitals) {
+        indexed.clear();
+        indexed.addAll(hospitals);
+        indexedSet.clear();
+        indexedSet.addAll(hospitals);
+        positions = new double[indexed.size()][];
+        for (int h = 0; h < positions.length; h++) {
+            positions[h] = locations.positionOf(indexed.get(h).hospital);
+        }
+        neighbours = new int[indexed.size()][];
+        GridIndex grid = new GridIndex(positions, radiusKm);
+        ForkJoinPool.commonPool().invoke(new NeighbourTask(0, positions.length, grid));
+    }
+
+    private double distance(int a, int b) {
+        return Math.hypot(positions[a][0] - positions[b][0], positions[a][1] - positions[b][1]);
+    }
+
+    // Poisson log-likelihood ratio of observing c cases where mu were expected, out of all
+    private static double logLikelihoodRatio(double c, double mu, double all) {
+        double ratio = c * Math.log(c / mu);
+        if (all > c) ratio += (all - c) * Math.log((all - c) / (all - mu));
+        return ratio;
+    }
+
+    /** Grows the circle of every centre in [from, to) and keeps its best cylinder. */
+    private final class CentreTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int[] totals;
+        private final int[][] recent;
+        private final long[] allRecent;
+        private final long all;
+        private final double[] bestRatio;
+        private final int[] bestSize;
+        private final int[] bestWindow;
+
+        CentreTask(int from, int to, int[] totals, int[][] recent, long[] allRecent, long all,
+                   double[] bestRatio, int[] bestSize, int[] bestWindow) {
+            this.from = from;
+            this.to = to;
+            this.totals = totals;
+            this.recent = recent;
+            this.allRecent = allRecent;
+            this.all = all;
+            this.bestRatio = bestRatio;
+            this.bestSize = bestSize;
+            this.bestWindow = bestWindow;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CENTRES_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new CentreTask(from, mid, totals, recent, allRecent, all, bestRatio, bestSize, bestWindow),
+                          new CentreTask(mid, to, totals, recent, allRecent, all, bestRatio, bestSize, bestWindow));
+                return;
+            }
+            long[] observed = new long[windowBuckets + 1];
+            for (int centre = from; centre < to; centre++) {
+                Arrays.fill(observed, 0);
+                long baseline = 0;
+                int[] circle = neighbours[centre];
+                for (int k = 0; k < circle.length; k++) {
+                    int member = circle[k];
+                    baseline += totals[member];
+                    for (int w = 1; w <= windowBuckets; w++) {
+                        observed[w] += recent[member][w];
+                        long c = observed[w];
+                        if (c < minCases) continue;
+                        double mu = (double) baseline * allRecent[w] / all;
+                        if (c <= mu) continue;
+                        double ratio = logLikelihoodRatio(c, mu, all);
+                        if (ratio > bestRatio[centre]) {
+                            bestRatio[centre] = ratio;
+                            bestSize[centre] = k + 1;
+                            bestWindow[centre] = w;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /** Fills the neighbour lists of hospitals [from, to). */
+    private final class NeighbourTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final GridIndex grid;
+
+        NeighbourTask(int from, int to, GridIndex grid) {
+            this.from = from;
+            this.to = to;
+            this.grid = grid;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CENTRES_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new NeighbourTask(from, mid, grid), new NeighbourTask(mid, to, grid));
+                return;
+            }
+            for (int centre = from; centre < to; centre++) {
+                neighbours[centre] = grid.nearest(centre, maxHospitals);
+            }
+        }
+    }
+
+    /** Uniform grid over the positions, with cells as wide as the search radius. */
+    private static final class GridIndex {
+        private final double[][] positions;
+        private final double cellKm;
+        private final Map<Long, int[]> cells = new HashMap<>();
+
+        GridIndex(double[][] positions, double cellKm) {
+            this.positions = positions;
+            this.cellKm = cellKm;
+            Map<Long, List<Integer>> members = new HashMap<>();
+            for (int h = 0; h < positions.length; h++) {
+                members.computeIfAbsent(cell(cellOf(positions[h][0]), cellOf(positions[h][1])), key -> new ArrayList<>()).add(h);
+            }
+            for (Map.Entry<Long, List<Integer>> entry : members.entrySet()) {
+                cells.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+            }
+        }
+
+        /** The centre, then up to {@code limit - 1} hospitals within the radius, nearest first. */
+        int[] nearest(int centre, int limit) {
+            double x = positions[centre][0];
+            double y = positions[centre][1];
+            long cx = cellOf(x);
+            long cy = cellOf(y);
+            // {distance bits, index}; non-negative doubles sort like their bits
+            List<long[]> found = new ArrayList<>();
+            for (long dx = -1; dx <= 1; dx++) {
+                for (long dy = -1; dy <= 1; dy++) {
+                    int[] members = cells.get(cell(cx + dx, cy + dy));
+                    if (members == null) continue;
+                    for (int h : members) {
+                        if (h == centre) continue;
+                        double d = Math.hypot(positions[h][0] - x, positions[h][1] - y);
+                        if (d <= cellKm) found.add(new long[] {Double.doubleToLongBits(d), h});
+                    }
+                }
+            }
+            found.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+            int size = Math.min(limit, found.size() + 1);
+            int[] result = new int[size];
+            result[0] = centre;
+            for (int i = 1; i < size; i++) {
+                result[i] = (int) found.get(i - 1)[1];
+            }
+            return result;
+        }
+
+        private long cellOf(double coordinate) {
+            return (long) Math.floor(coordinate / cellKm);
+        }
+
+        private static long cell(long cx, long cy) {
+            return cx << 32 ^ (cy & 0xffffffffL);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Splits symptom patterns such as "fever,cough,fatigue" into codes of the
+ * individual symptoms, so windows can count each symptom separately.
+ *
+ * Individual symptoms get their own dictionary. The ones named in the
+ * catalog patterns are seeded first, in order of first appearance; they are
+ * the symptoms the model has prevalence features for. The split of each
+ * pattern is computed once and cached by pattern code, so ingesting a report
+ * costs an array read instead of string splitting and hashing.
+ */
+public final class SymptomSets {
+    /** Catalog symptoms, whose codes are 0 to TRACKED.length - 1. */
+    public static final String[] TRACKED = split(ReportCatalog.SYMPTOMS);
+    public static final CategoryDictionary NAMES = new CategoryDictionary("symptom", TRACKED);
+
+    private static final int[] NO_SYMPTOMS = new int[0];
+
+    // Indexed by pattern code; replaced wholesale when a pattern is added
+    private static volatile int[][] byPattern = new int[16][];
+
+    private SymptomSets() {
+    }
+
+    /** Sorted, distinct codes of the individual symptoms in pattern {@code symptomsCode}. */
+    public static int[] codesOf(int symptomsCode) {
+        int[][] table = byPattern;
+        if (symptomsCode < table.length && table[symptomsCode] != null) {
+            return table[symptomsCode];
+        }
+        return addPattern(symptomsCode);
+    }
+
+    private static synchronized int[] addPattern(int symptomsCode) {
+        int[][] table = byPattern;
+        if (symptomsCode < table.length && table[symptomsCode] != null) {
+            return table[symptomsCode];
+        }
+        int[] codes = NO_SYMPTOMS;
+        String pattern = CategoryDictionary.SYMPTOMS.valueOf(symptomsCode);
+        if (!pattern.isEmpty()) {
+            codes = Arrays.stream(pattern.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .mapToInt(NAMES::intern)
+                .distinct()
+                .sorted()
+                .toArray();
+        }
+        int[][] copy = Arrays.copyOf(table, Math.max(table.length, Integer.highestOneBit(symptomsCode) << 1));
+        copy[symptomsCode] = codes;
+        byPattern = copy;
+        return codes;
+    }
+
+    private static String[] split(String[] patterns) {
+        List<String> names = new ArrayList<>();
+        for (String pattern : patterns) {
+            for (String name : pattern.split(",")) {
+                name = name.trim();
+                if (!name.isEmpty() && !names.contains(name)) names.add(name);
+            }
+        }
+        return names.toArray(new String[0]);
+    }
+}
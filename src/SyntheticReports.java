@@ -0,0 +1,83 @@
+import java.util.Random;
+
+/**
+ * Random patient reports with the simulated illness patterns of the data
+ * generator: uniformly chosen hospitals, symptoms and severities, a fever
+ * bump for severe cases, and outbreak clusters of one symptom pattern at one
+ * hospital. Shared by the demo stream, the load generator and the benchmarks
+ * so they all exercise the predictor with the same data.
+ *
+ * Not thread-safe; give each generating thread its own instance.
+ */
+public class SyntheticReports {
+    private static final int MODERATE = CategoryDictionary.SEVERITIES.intern("moderate");
+    private static final int SEVERE = CategoryDictionary.SEVERITIES.intern("severe");
+
+    private final Random random;
+    private final String[] hospitalNames;
+    private final int[] hospitalCodes;
+
+    private int clusterHospital;
+    private int clusterSymptoms;
+
+    public SyntheticReports(int hospitals, Random random) {
+        if (hospitals <= 0) {
+            throw new IllegalArgumentException("hospitals must be positive");
+        }
+        this.random = random;
+        hospitalNames = new String[hospitals];
+        hospitalCodes = new int[hospitals];
+        for (int h = 0; h < hospitals; h++) {
+            hospitalNames[h] = hospitalName(h);
+            hospitalCodes[h] = CategoryDictionary.HOSPITALS.intern(hospitalNames[h]);
+        }
+    }
+
+    /**
+     * The catalog hospitals first, then generated names; the binary format
+     * sends names outside the catalog inline.
+     */
+    public static String hospitalName(int index) {
+        return index < ReportCatalog.HOSPITALS.length
+            ? ReportCatalog.HOSPITALS[index]
+            : String.format("Hospital %05d", index + 1);
+    }
+
+    public int hospitalCount() {
+        return hospitalNames.length;
+    }
+
+    public String getHospitalName(int index) {
+        return hospitalNames[index];
+    }
+
+    /** Fills {@code into} with an ordinary report and returns its hospital index. */
+    public int nextReport(PatientReport into, long timestamp) {
+        int hospital = random.nextInt(hospitalCodes.length);
+        into.hospital = hospitalCodes[hospital];
+        into.symptoms = random.nextInt(ReportCatalog.SYMPTOMS.length);
+        into.severity = random.nextInt(ReportCatalog.SEVERITY_LEVELS.length);
+        into.temperature = 98.6 + (random.nextGaussian() * 2) + (into.severity == SEVERE ? 3 : 0);
+        into.timestamp = timestamp;
+        into.cluster = false;
+        return hospital;
+    }
+
+    /** Picks the hospital and symptom pattern for the next outbreak cluster and returns the hospital index. */
+    public int startCluster() {
+        clusterHospital = random.nextInt(hospitalCodes.length);
+        clusterSymptoms = random.nextInt(ReportCatalog.SYMPTOMS.length);
+        return clusterHospital;
+    }
+
+    /** Fills {@code into} with a report of the current cluster and returns its hospital index. */
+    public int nextClusterReport(PatientReport into, long timestamp) {
+        into.hospital = hospitalCodes[clusterHospital];
+        into.symptoms = clusterSymptoms;
+        into.severity = MODERATE;
+        into.temperature = 101.0 + random.nextDouble();
+        into.timestamp = timestamp;
+        into.cluster = true;
+        return clusterHospital;
+    }
+}
@@ -0,0 +1,122 @@
+import java.util.Arrays;
+
+/**
+ * Hashed timer wheel of int keys, used to expire the windows of hospitals
+ * that have gone quiet.
+ *
+ * Time is divided into ticks, and a timer lives in the slot of the tick its
+ * deadline falls in; timers further out than one turn of the wheel wait in
+ * their slot for later turns. A slot is processed once its tick has fully
+ * passed, so timers fire up to one tick late. Scheduling is O(1), and
+ * advancing costs only the slots passed and the timers in them, however many
+ * hospitals are tracked.
+ *
+ * A key may be scheduled more than once; callers that need one live timer
+ * per key check the deadline they are handed against their own.
+ *
+ * Not thread-safe: a wheel belongs to the thread that owns its keys.
+ */
+public class TimerWheel {
+    /** Receives each timer that is due. */
+    public interface Handler {
+        void expired(int key, long deadline);
+    }
+
+    private static final int INITIAL_SLOT_CAPACITY = 4;
+
+    private final long tickMillis;
+    private final int mask;
+    private final int[][] keys;
+    private final long[][] deadlines;
+    private final int[] sizes;
+    private long processedTick; // every tick up to and including this one has fired
+    private int size = 0;
+
+    // Scratch for timers fired during advance, which may reschedule into the same slot
+    private int[] dueKeys = new int[INITIAL_SLOT_CAPACITY];
+    private long[] dueDeadlines = new long[INITIAL_SLOT_CAPACITY];
+
+    /** A wheel of {@code slots} ticks (rounded up to a power of two) starting at {@code now}. */
+    public TimerWheel(long tickMillis, int slots, long now) {
+        if (tickMillis <= 0 || slots <= 0) {
+            throw new IllegalArgumentException("Tick length and slot count must be positive");
+        }
+        int count = Integer.highestOneBit(Math.max(slots, 2) - 1) << 1;
+        this.tickMillis = tickMillis;
+        this.mask = count - 1;
+        this.keys = new int[count][INITIAL_SLOT_CAPACITY];
+        this.deadlines = new long[count][INITIAL_SLOT_CAPACITY];
+        this.sizes = new int[count];
+        this.processedTick = Math.floorDiv(now, tickMillis) - 1;
+    }
+
+    /** Fires {@code key} on the first {@link #advance} after the tick holding {@code deadline} has passed. */
+    public void schedule(int key, long deadline) {
+        // Past deadlines go into the next tick to be processed
+        long tick = Math.max(Math.floorDiv(deadline, tickMillis), processedTick + 1);
+        int slot = (int) tick & mask;
+        int n = sizes[slot];
+        if (n == keys[slot].length) {
+            keys[slot] = Arrays.copyOf(keys[slot], n * 2);
+            deadlines[slot] = Arrays.copyOf(deadlines[slot], n * 2);
+        }
+        keys[slot][n] = key;
+        deadlines[slot][n] = deadline;
+        sizes[slot] = n + 1;
+        size++;
+    }
+
+    /** Fires every timer whose tick has passed by {@code now}; returns how many fired. */
+    public int advance(long now, Handler handler) {
+        // The tick now falls in is still running
+        long lastTick = Math.floorDiv(now, tickMillis) - 1;
+        if (lastTick <= processedTick) return 0;
+        // After a long pause every slot is due at most once
+        long ticks = Math.min(lastTick - processedTick, mask + 1);
+        int fired = 0;
+        for (long t = 1; t <= ticks; t++) {
+            fired += fireSlot((int) (processedTick + t) & mask, now, handler);
+        }
+        processedTick = lastTick;
+        return fired;
+    }
+
+    /** Number of timers scheduled, including ones whose key was rescheduled since. */
+    public int size() {
+        return size;
+    }
+
+    private int fireSlot(int slot, long now, Handler handler) {
+        int n = sizes[slot];
+        if (n == 0) return 0;
+
+        // Keep the timers of later turns, set the due ones aside
+        int[] slotKeys = keys[slot];
+        long[] slotDeadlines = deadlines[slot];
+        int kept = 0;
+        int due = 0;
+        for (int i = 0; i < n; i++) {
+            if (slotDeadlines[i] <= now) {
+                if (due == dueKeys.length) {
+                    dueKeys = Arrays.copyOf(dueKeys, due * 2);
+                    dueDeadlines = Arrays.copyOf(dueDeadlines, due * 2);
+                }
+                dueKeys[due] = slotKeys[i];
+                dueDeadlines[due] = slotDeadlines[i];
+                due++;
+            } else {
+                slotKeys[kept] = slotKeys[i];
+                slotDeadlines[kept] = slotDeadlines[i];
+                kept++;
+            }
+        }
+        sizes[slot] = kept;
+        size -= due;
+
+        // Handlers may schedule new timers, so fire only once the slot is consistent
+        for (int i = 0; i < due; i++) {
+            handler.expired(dueKeys[i], dueDeadlines[i]);
+        }
+        return due;
+    }
+}
@@ -0,0 +1,85 @@
+import weka.classifiers.Classifier;
+import weka.core.Instances;
+
+/**
+ * A fully built outbreak model together with the statistics of the training
+ * run that produced it.
+ *
+ * Instances are immutable once published by {@link ModelTrainer}, so a
+ * scorer that has read the current model never sees it change underneath it.
+ * The classifier and its compiled form keep scratch state, so they belong
+ * to the single scoring thread.
+ *
+ * Every published model gets a new version. Online updates only move the
+ * weights of the model they start from and keep its training version; a
+ * full training run starts a new one.
+ */
+public final class TrainedModel {
+    private final Classifier classifier;
+    private final CompiledModel compiled;
+    private final Instances header;
+    private final int version;
+    private final int trainingVersion;
+    private final int trainingInstances;
+    private final long trainingMillis;
+    private final double trainingAccuracy;
+    private final long swappedAt;
+
+    TrainedModel(Classifier classifier, CompiledModel compiled, Instances header, int version,
+                 int trainingInstances, long trainingMillis, double trainingAccuracy, long swappedAt) {
+        this(classifier, compiled, header, version, version, trainingInstances, trainingMillis, trainingAccuracy, swappedAt);
+    }
+
+    TrainedModel(Classifier classifier, CompiledModel compiled, Instances header, int version, int trainingVersion,
+                 int trainingInstances, long trainingMillis, double trainingAccuracy, long swappedAt) {
+        this.classifier = classifier;
+        this.compiled = compiled;
+        this.header = header;
+        this.version = version;
+        this.trainingVersion = trainingVersion;
+        this.trainingInstances = trainingInstances;
+        this.trainingMillis = trainingMillis;
+        this.trainingAccuracy = trainingAccuracy;
+        this.swappedAt = swappedAt;
+    }
+
+    public Classifier getClassifier() {
+        return classifier;
+    }
+
+    /** Flat-coefficient form for batch scoring, or null if the classifier type has none. */
+    public CompiledModel getCompiled() {
+        return compiled;
+    }
+
+    /** Empty dataset with the model's attribute structure, for building instances to score. */
+    public Instances getHeader() {
+        return header;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    /** Version of the full training run this model descends from; equal to the version for one it produced. */
+    public int getTrainingVersion() {
+        return trainingVersion;
+    }
+
+    public int getTrainingInstances() {
+        return trainingInstances;
+    }
+
+    public long getTrainingMillis() {
+        return trainingMillis;
+    }
+
+    /** Accuracy on the training snapshot, in percent. */
+    public double getTrainingAccuracy() {
+        return trainingAccuracy;
+    }
+
+    public long getSwappedAt() {
+        return swappedAt;
+    }
+}
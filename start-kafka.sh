@@ -25,7 +25,8 @@ sleep 10
 
 # Create topic
 echo "📋 Creating patient-reports topic..."
-./bin/kafka-topics.sh --create --topic patient-reports --bootstrap-server localhost:9092 --partitions 1 --replication-factor 1
+# Reports are keyed by hospital; the predictor runs one worker per partition
+./bin/kafka-topics.sh --create --topic patient-reports --bootstrap-server localhost:9092 --partitions ${PARTITIONS:-4} --replication-factor 1
 
 # Verify topic creation
 echo "✅ Verifying topic creation..."
@@ -0,0 +1,177 @@
+import org.junit.Test;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BinaryReportCodecTest {
+
+    @Test
+    public void catalogReportRoundTrips() {
+        assertRoundTrip(new PatientReport("PATIENT_1000", ReportCatalog.HOSPITALS[0], ReportCatalog.SYMPTOMS[3],
+                                          "critical", 103.4, 1700000000123L, true));
+    }
+
+    @Test
+    public void inlineValuesRoundTrip() {
+        // Outside the catalog, so every ref is written inline; negative and non-ASCII values too
+        assertRoundTrip(new PatientReport("PATIENT_é_1", "Hospital Zürich", "rash,itching", "unknown",
+                                          -40.5, 0L, false));
+    }
+
+    @Test
+    public void decoderPicksFormatFromFirstByte() {
+        PatientReport report = new PatientReport("P1", ReportCatalog.HOSPITALS[1], ReportCatalog.SYMPTOMS[0],
+                                                 "mild", 98.6, 1234L, false);
+        byte[] binary = new PatientReportSerializer(ReportFormat.BINARY).serialize("t", report);
+        byte[] json = new PatientReportSerializer(ReportFormat.JSON).serialize("t", report);
+        assertTrue(BinaryReportCodec.isBinary(binary, 0, binary.length));
+        assertFalse(BinaryReportCodec.isBinary(json, 0, json.length));
+
+        PatientReportDecoder decoder = new PatientReportDecoder(ReportFormat.AUTO);
+        for (byte[] record : new byte[][] {binary, json}) {
+            PatientReport decoded = new PatientReport();
+            decoder.decode(record, decoded);
+            assertSameReport(report, decoded);
+        }
+    }
+
+    @Test
+    public void unknownVersionIsReportedAsSuch() {
+        byte[] record = encode(new PatientReport("P1", ReportCatalog.HOSPITALS[0], ReportCatalog.SYMPTOMS[0],
+                                                 "mild", 98.6, 1L, false));
+        record[0] = 2;
+        assertMalformed(record, "unsupported binary report version 2");
+        record[0] = 'x';
+        assertMalformed(record, "unsupported binary report version");
+    }
+
+    @Test
+    public void negativeInlineLengthIsMalformed() {
+        ByteArrayOutputStream out = header();
+        writeVarLong(out, 0);  // inline hospital
+        writeVarLong(out, -1); // ten-byte varint decoding to -1
+        out.write('A');
+        assertMalformed(out.toByteArray(), "length");
+    }
+
+    @Test
+    public void negativePatientIdLengthIsMalformed() {
+        ByteArrayOutputStream out = catalogFields();
+        writeVarLong(out, -1);
+        assertMalformed(out.toByteArray(), "length");
+    }
+
+    @Test
+    public void oversizedLengthsAreMalformed() {
+        for (long length : new long[] {Integer.MAX_VALUE, Integer.MAX_VALUE + 1L, Long.MAX_VALUE, 5}) {
+            ByteArrayOutputStream out = catalogFields();
+            writeVarLong(out, length);
+            out.write('A');
+            assertMalformed(out.toByteArray(), "length");
+        }
+    }
+
+    @Test
+    public void badCatalogIndexIsMalformed() {
+        for (long ref : new long[] {ReportCatalog.HOSPITALS.length + 1, Long.MIN_VALUE, -1}) {
+            ByteArrayOutputStream out = header();
+            writeVarLong(out, ref);
+            assertMalformed(out.toByteArray(), "catalog index");
+        }
+    }
+
+    @Test
+    public void truncatedAndTrailingRecordsAreMalformed() {
+        byte[] record = encode(new PatientReport("PATIENT_42", "Inline Hospital", ReportCatalog.SYMPTOMS[2],
+                                                 "severe", 101.2, 1700000000000L, true));
+        for (int length = 1; length < record.length; length++) {
+            assertMalformed(Arrays.copyOf(record, length), null);
+        }
+        assertMalformed(Arrays.copyOf(record, record.length + 1), "trailing data");
+    }
+
+    @Test
+    public void corruptRecordsOnlyEverFailAsMalformed() {
+        byte[] record = encode(new PatientReport("PATIENT_7", "Inline Hospital", "inline,symptoms",
+                                                 "critical", 104.9, 1700000000000L, true));
+        Random random = new Random(17);
+        BinaryReportCodec codec = new BinaryReportCodec();
+        PatientReport into = new PatientReport();
+        for (int i = 0; i < 20000; i++) {
+            byte[] corrupt = record.clone();
+            for (int flips = 1 + random.nextInt(3); flips > 0; flips--) {
+                corrupt[1 + random.nextInt(corrupt.length - 1)] = (byte) random.nextInt(256);
+            }
+            try {
+                codec.decode(corrupt, 0, corrupt.length, into);
+            } catch (MalformedReportException e) {
+                // expected for most
+            }
+        }
+    }
+
+    private static void assertRoundTrip(PatientReport report) {
+        PatientReport decoded = new PatientReport();
+        byte[] record = encode(report);
+        new BinaryReportCodec().decode(record, 0, record.length, decoded);
+        assertSameReport(report, decoded);
+    }
+
+    private static void assertSameReport(PatientReport expected, PatientReport actual) {
+        assertEquals(expected.getPatientId(), actual.getPatientId());
+        assertEquals(expected.getHospital(), actual.getHospital());
+        assertEquals(expected.getSymptoms(), actual.getSymptoms());
+        assertEquals(expected.getSeverity(), actual.getSeverity());
+        // Both formats keep tenths of a degree
+        assertEquals(expected.getTemperature(), actual.getTemperature(), 0.05);
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertEquals(expected.isCluster(), actual.isCluster());
+    }
+
+    private static void assertMalformed(byte[] record, String expectedMessage) {
+        try {
+            new BinaryReportCodec().decode(record, 0, record.length, new PatientReport());
+            fail("accepted " + Arrays.toString(record));
+        } catch (MalformedReportException e) {
+            if (expectedMessage != null && !e.getMessage().contains(expectedMessage)) {
+                fail("unexpected message: " + e.getMessage());
+            }
+        }
+    }
+
+    private static byte[] encode(PatientReport report) {
+        return new BinaryReportCodec().encode(report);
+    }
+
+    // Version and flags
+    private static ByteArrayOutputStream header() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(BinaryReportCodec.VERSION_1);
+        out.write(0);
+        return out;
+    }
+
+    // Everything up to the patient id length, with catalog refs
+    private static ByteArrayOutputStream catalogFields() {
+        ByteArrayOutputStream out = header();
+        writeVarLong(out, 1);
+        writeVarLong(out, 1);
+        writeVarLong(out, 1);
+        writeVarLong(out, 986 << 1);
+        writeVarLong(out, 1700000000000L);
+        return out;
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
@@ -0,0 +1,152 @@
+import org.junit.Test;
+import weka.classifiers.Classifier;
+import weka.classifiers.functions.Logistic;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class CompiledModelTest {
+    private static final double TOLERANCE = 1e-9;
+
+    @Test
+    public void logisticMatchesWekaDistribution() throws Exception {
+        Instances data = outbreakData(500, false, new Random(7));
+        Logistic logistic = new Logistic();
+        logistic.buildClassifier(data);
+
+        assertMatchesWeka(logistic, data);
+    }
+
+    @Test
+    public void logisticWithConstantAttributeMatchesWekaDistribution() throws Exception {
+        // Weka drops the constant severeCaseRatio column before fitting
+        Instances data = outbreakData(300, true, new Random(11));
+        Logistic logistic = new Logistic();
+        logistic.buildClassifier(data);
+
+        assertMatchesWeka(logistic, data);
+    }
+
+    @Test
+    public void onlineLogisticMatchesItsOwnDistribution() throws Exception {
+        Instances data = outbreakData(400, false, new Random(3));
+        OnlineLogistic online = new OnlineLogistic();
+        online.buildClassifier(data);
+        for (Instance extra : outbreakData(50, false, new Random(5))) {
+            online.updateClassifier(extra);
+        }
+
+        assertMatchesWeka(online, data);
+    }
+
+    @Test
+    public void logisticOnPredictorFeaturesMatchesWekaDistribution() throws Exception {
+        // The predictor's own header: most prevalence columns never vary, so Weka drops them
+        Instances data = predictorData(500, new Random(13));
+        Logistic logistic = new Logistic();
+        logistic.buildClassifier(data);
+
+        assertMatchesWeka(logistic, data, predictorData(1000, new Random(42)));
+    }
+
+    @Test
+    public void onlineLogisticOnPredictorFeaturesMatchesItsOwnDistribution() throws Exception {
+        Instances data = predictorData(400, new Random(17));
+        OnlineLogistic online = new OnlineLogistic();
+        online.buildClassifier(data);
+        for (Instance extra : predictorData(50, new Random(19))) {
+            online.updateClassifier(extra);
+        }
+
+        assertMatchesWeka(online, data, predictorData(1000, new Random(42)));
+    }
+
+    private static void assertMatchesWeka(Classifier classifier, Instances data) throws Exception {
+        assertMatchesWeka(classifier, data, outbreakData(1000, false, new Random(42)));
+    }
+
+    private static void assertMatchesWeka(Classifier classifier, Instances data, Instances probe) throws Exception {
+        CompiledModel compiled = CompiledModel.compile(classifier, data);
+        assertNotNull(compiled);
+
+        // Score fresh rows, including some outside the training range
+        FeatureMatrix features = new FeatureMatrix(data.numAttributes() - 1, 16);
+        features.reset(probe.numInstances());
+        for (int i = 0; i < probe.numInstances(); i++) {
+            for (int j = 0; j < features.numFeatures(); j++) {
+                features.set(i, j, probe.instance(i).value(j) * (i % 10 == 0 ? 1.5 : 1.0));
+            }
+        }
+
+        double[] all = new double[probe.numInstances() * data.numClasses()];
+        double[] high = new double[probe.numInstances()];
+        compiled.score(features, all);
+        compiled.scoreClass(features, 2, high);
+
+        for (int i = 0; i < probe.numInstances(); i++) {
+            double[] values = new double[data.numAttributes()];
+            for (int j = 0; j < features.numFeatures(); j++) {
+                values[j] = features.get(i, j);
+            }
+            Instance instance = new DenseInstance(1.0, values);
+            instance.setDataset(data);
+            double[] expected = classifier.distributionForInstance(instance);
+
+            double[] actual = Arrays.copyOfRange(all, i * data.numClasses(), (i + 1) * data.numClasses());
+            for (int k = 0; k < expected.length; k++) {
+                assertEquals("row " + i + " class " + k, expected[k], actual[k], TOLERANCE);
+            }
+            assertEquals("row " + i + " HIGH", expected[2], high[i], TOLERANCE);
+        }
+    }
+
+    // The original four-feature layout, labelled like MLOutbreakPredictor.toTrainingExample
+    private static Instances outbreakData(int size, boolean constantSevereRatio, Random random) {
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        attributes.add(new Attribute("caseVelocity"));
+        attributes.add(new Attribute("avgTemperature"));
+        attributes.add(new Attribute("symptomDiversity"));
+        attributes.add(new Attribute("severeCaseRatio"));
+        attributes.add(new Attribute("outbreakRisk", new ArrayList<>(Arrays.asList("LOW", "MEDIUM", "HIGH"))));
+        Instances data = new Instances("OutbreakData", attributes, size);
+        data.setClassIndex(4);
+
+        for (int i = 0; i < size; i++) {
+            double velocity = random.nextInt(8);
+            double temperature = 98.6 + random.nextGaussian() * 1.5;
+            double diversity = 1 + random.nextInt(6);
+            double severe = constantSevereRatio ? 0.25 : random.nextDouble();
+            boolean cluster = random.nextInt(10) == 0;
+            int label = cluster || velocity > 4 || temperature > 102 ? 2 :
+                        velocity > 2 || temperature > 101 ? 1 : 0;
+            data.add(new DenseInstance(1.0, new double[] {velocity, temperature, diversity, severe, label}));
+        }
+        return data;
+    }
+
+    // Examples built the way the predictor trains: createDatasetHeader and toTrainingExample
+    private static Instances predictorData(int size, Random random) {
+        Instances data = MLOutbreakPredictor.createDatasetHeader();
+        for (int i = 0; i < size; i++) {
+            MLOutbreakPredictor.HospitalMetrics metrics = new MLOutbreakPredictor.HospitalMetrics("Hospital " + i);
+            metrics.caseVelocity = random.nextInt(8);
+            metrics.avgTemperature = 98.6 + random.nextGaussian() * 1.5;
+            metrics.symptomDiversity = 1 + random.nextInt(6);
+            metrics.severeCaseRatio = random.nextDouble();
+            // Only a few symptoms ever show up; one at a fixed share
+            metrics.symptomPrevalence[0] = random.nextDouble();
+            metrics.symptomPrevalence[2] = random.nextDouble() * 0.3;
+            metrics.symptomPrevalence[5] = 0.5;
+            metrics.hadRecentOutbreak = random.nextInt(10) == 0;
+            data.add(MLOutbreakPredictor.toTrainingExample(metrics, data));
+        }
+        return data;
+    }
+}
@@ -0,0 +1,96 @@
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class HospitalWindowTest {
+    private static final long WINDOW_MS = 60000;
+    private static final double TOLERANCE = 1e-9;
+
+    // One case as the original predictor kept it in hospitalCases
+    private static final class PatientCase {
+        final long timestamp;
+        final double temperature;
+        final String symptoms;
+        final String severity;
+
+        PatientCase(long timestamp, double temperature, String symptoms, String severity) {
+            this.timestamp = timestamp;
+            this.temperature = temperature;
+            this.symptoms = symptoms;
+            this.severity = severity;
+        }
+    }
+
+    @Test
+    public void inOrderCasesMatchRescan() {
+        assertMatchesRescan(new Random(1), 2000, 0, 0);
+    }
+
+    @Test
+    public void outOfOrderCasesMatchRescan() {
+        // Reports up to 5 s late, as when producers or partitions lag
+        assertMatchesRescan(new Random(2), 2000, 5000, 0);
+    }
+
+    @Test
+    public void expiringCasesMatchRescan() {
+        // Quiet gaps longer than the window empty it completely now and then
+        assertMatchesRescan(new Random(3), 2000, 2000, 20);
+    }
+
+    private static void assertMatchesRescan(Random random, int cases, long maxLateness, int gapEvery) {
+        HospitalWindow window = new HospitalWindow(WINDOW_MS);
+        List<PatientCase> history = new ArrayList<>();
+        long clock = 1_000_000;
+
+        for (int i = 0; i < cases; i++) {
+            clock += random.nextInt(400);
+            if (gapEvery > 0 && random.nextInt(gapEvery) == 0) {
+                clock += WINDOW_MS + random.nextInt((int) WINDOW_MS);
+            }
+            long timestamp = clock - (maxLateness == 0 ? 0 : (long) (random.nextDouble() * maxLateness));
+            String symptoms = ReportCatalog.SYMPTOMS[random.nextInt(ReportCatalog.SYMPTOMS.length)];
+            String severity = ReportCatalog.SEVERITY_LEVELS[random.nextInt(ReportCatalog.SEVERITY_LEVELS.length)];
+            double temperature = 97.0 + random.nextDouble() * 8.0;
+
+            PatientCase patientCase = new PatientCase(timestamp, temperature, symptoms, severity);
+            history.add(patientCase);
+            window.add(timestamp, temperature, CategoryDictionary.SYMPTOMS.intern(symptoms), isSevere(severity));
+            window.expire(clock);
+
+            assertSameMetrics("case " + i, rescan(history, clock), window);
+        }
+    }
+
+    // The original updateHospitalMetrics: filter the whole history to the
+    // window, then one stream per metric
+    private static List<PatientCase> rescan(List<PatientCase> history, long currentTime) {
+        List<PatientCase> recentCases = new ArrayList<>();
+        history.stream()
+            .filter(c -> currentTime - c.timestamp <= WINDOW_MS)
+            .forEach(recentCases::add);
+        return recentCases;
+    }
+
+    private static void assertSameMetrics(String message, List<PatientCase> recentCases, HospitalWindow window) {
+        assertEquals(message + " velocity", recentCases.size(), window.size());
+        if (recentCases.isEmpty()) return; // the original left the metrics unchanged
+
+        double avgTemperature = recentCases.stream().mapToDouble(c -> c.temperature).average().orElse(98.6);
+        long symptomDiversity = recentCases.stream().map(c -> c.symptoms).distinct().count();
+        double severeCaseRatio = (double) recentCases.stream()
+            .filter(c -> isSevere(c.severity))
+            .count() / recentCases.size();
+
+        assertEquals(message + " avg temperature", avgTemperature, window.averageTemperature(), TOLERANCE);
+        assertEquals(message + " symptom diversity", symptomDiversity, window.distinctSymptomPatterns());
+        assertEquals(message + " severe ratio", severeCaseRatio, window.severeRatio(), TOLERANCE);
+    }
+
+    private static boolean isSevere(String severity) {
+        return "severe".equals(severity) || "critical".equals(severity);
+    }
+}
@@ -0,0 +1,106 @@
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReportRingTest {
+    private static final int PRODUCERS = 4;
+
+    @Test(timeout = 60000)
+    public void concurrentProducersDeliverEveryReportOnceInOrder() throws Exception {
+        // A ring much smaller than the load, so producers keep finding it full
+        ReportRing ring = new ReportRing(8);
+        int perProducer = 20000;
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            int producer = p;
+            producers.add(start(() -> {
+                PatientReport report = new PatientReport();
+                for (int n = 0; n < perProducer; n++) {
+                    report.hospital = producer;
+                    report.timestamp = n;
+                    assertTrue(ring.put(report));
+                }
+            }));
+        }
+
+        // Each producer's reports must come out once each, in the order it put them
+        long[] next = new long[PRODUCERS];
+        int total = PRODUCERS * perProducer;
+        int drained = 0;
+        while (drained < total) {
+            int count = ring.drain(report -> {
+                assertEquals("producer " + report.hospital, next[report.hospital], report.timestamp);
+                next[report.hospital]++;
+            }, 64);
+            if (count == 0) Thread.yield();
+            drained += count;
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        for (int p = 0; p < PRODUCERS; p++) {
+            assertEquals(perProducer, next[p]);
+        }
+        assertEquals(0, ring.size());
+        assertEquals(0, ring.drain(report -> { }, 64));
+    }
+
+    @Test(timeout = 60000)
+    public void closeReleasesProducersWaitingOnAFullRing() throws Exception {
+        ReportRing ring = new ReportRing(4);
+        PatientReport report = new PatientReport();
+        for (int n = 0; n < ring.capacity(); n++) {
+            report.timestamp = n;
+            assertTrue(ring.put(report));
+        }
+
+        AtomicInteger rejected = new AtomicInteger();
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            producers.add(start(() -> {
+                PatientReport extra = new PatientReport();
+                extra.timestamp = -1;
+                if (!ring.put(extra)) rejected.incrementAndGet();
+            }));
+        }
+        // Every producer has found the ring full and is waiting
+        while (ring.getStalls() < PRODUCERS) {
+            Thread.sleep(1);
+        }
+
+        ring.close();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        assertEquals(PRODUCERS, rejected.get());
+        assertTrue(ring.isClosed());
+        assertFalse(ring.put(report));
+
+        // What was in the ring before it closed still drains, and nothing else
+        List<Long> timestamps = new ArrayList<>();
+        assertEquals(ring.capacity(), ring.drain(r -> timestamps.add(r.timestamp), 64));
+        for (int n = 0; n < ring.capacity(); n++) {
+            assertEquals(n, (long) timestamps.get(n));
+        }
+        assertEquals(0, ring.size());
+    }
+
+    @Test
+    public void capacityRoundsUpToAPowerOfTwo() {
+        assertEquals(2, new ReportRing(0).capacity());
+        assertEquals(8, new ReportRing(5).capacity());
+        assertEquals(8, new ReportRing(8).capacity());
+    }
+
+    private static Thread start(Runnable body) {
+        Thread thread = new Thread(body);
+        thread.start();
+        return thread;
+    }
+}